@@ -1,6 +1,7 @@
 plugins {
     id("java")
     id("application")
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "me.xeroday"
@@ -11,6 +12,13 @@ repositories {
     maven("https://jitpack.io")
 }
 
+// Virtual threads (the virtual chunk pipeline, ScratchPool, MeshBuilder) need Java 21
+java {
+    toolchain {
+        languageVersion.set(JavaLanguageVersion.of(21))
+    }
+}
+
 application {
     mainClass.set("me.xeroday.Main")
 }
@@ -37,4 +45,56 @@ dependencies {
     runtimeOnly("org.lwjgl:lwjgl-glfw:$lwjglVersion:$lwjglNatives")
     runtimeOnly("org.lwjgl:lwjgl-opengl:$lwjglVersion:$lwjglNatives")
     runtimeOnly("org.lwjgl:lwjgl-stb:$lwjglVersion:$lwjglNatives")
-}
\ No newline at end of file
+
+    testImplementation(platform("org.junit:junit-bom:5.10.2"))
+    testImplementation("org.junit.jupiter:junit-jupiter")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+}
+
+// Headless unit tests under src/test, run by ./gradlew test (and check)
+tasks.test {
+    useJUnitPlatform()
+    maxHeapSize = "1g"
+}
+
+// Headless benchmarks under src/jmh, run with ./gradlew jmh
+// Results are written as JSON so runs can be compared across commits.
+jmh {
+    jmhVersion.set("1.37")
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+    includes.set(listOf(project.findProperty("jmhInclude")?.toString() ?: ".*"))
+    profilers.set(project.findProperty("jmhProfilers")?.toString()?.split(",") ?: listOf()) // e.g. -PjmhProfilers=gc
+}
+
+// Headless pre-generation to disk: ./gradlew pregen --args="--seed 42 --radius 64 --threads 8"
+tasks.register<JavaExec>("pregen") {
+    group = "application"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("me.xeroday.Pregenerate")
+}
+
+// bin/xylo-pregen next to the game's start script in the distribution, for machines without a display
+val pregenStartScripts = tasks.register<CreateStartScripts>("pregenStartScripts") {
+    mainClass.set("me.xeroday.Pregenerate")
+    applicationName = "xylo-pregen"
+    outputDir = layout.buildDirectory.dir("pregenScripts").get().asFile
+    classpath = tasks.startScripts.get().classpath
+}
+distributions {
+    main {
+        contents {
+            from(pregenStartScripts) { into("bin") }
+        }
+    }
+}
+
+// Headless world generation: ./gradlew generateWorld --args="--seed 42 --size 32"
+tasks.register<JavaExec>("generateWorld") {
+    group = "application"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("me.xeroday.world.WorldGenerator")
+}
@@ -0,0 +1,40 @@
+package me.xeroday.engine;
+
+import me.xeroday.world.World;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Biome sampling behind the map texture (400x400 lookups), without the GL upload.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MapRendererBenchmark {
+    private static final int MAP_SIZE = 400;
+
+    private World world;
+    private ByteBuffer buffer;
+    private int offset;
+
+    @Setup
+    public void setup() {
+        world = new World(1337, null);
+        buffer = ByteBuffer.allocateDirect(MAP_SIZE * MAP_SIZE * 4);
+    }
+
+    @TearDown
+    public void tearDown() {
+        world.cleanup();
+    }
+
+    @Benchmark
+    public ByteBuffer sampleBiomes() {
+        buffer.clear();
+        offset += 37; // move the centre so every call samples new columns
+        MapRenderer.fillBiomeColors(world, offset, -offset, MAP_SIZE, buffer);
+        return buffer;
+    }
+}
@@ -0,0 +1,99 @@
+package me.xeroday.utils;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The noise functions used by terrain generation, 256 samples per invocation.
+ * The *Batched variants use the array API and should be compared with their scalar twins.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PerlinNoiseBenchmark {
+    private static final int SAMPLES = 256;
+    private static final float SCALE_3D = 0.006f; // Chunk.SCALE_NOISE_3D
+
+    private PerlinNoise noise;
+    private double y;
+    private final double[] xs = new double[SAMPLES], ys = new double[SAMPLES], zs = new double[SAMPLES];
+    private final double[] out = new double[SAMPLES], scratchY = new double[SAMPLES];
+    private final double[] columnY = new double[SAMPLES]; // block heights, warped a little
+    private final float[] fbmOut = new float[SAMPLES];
+
+    @Setup
+    public void setup() {
+        noise = new PerlinNoise(1337);
+        y = 0.37;
+        for (int i = 0; i < SAMPLES; i++) { xs[i] = i * 0.02; ys[i] = y + i * 0.02; zs[i] = i * 0.013; }
+        for (int i = 0; i < SAMPLES; i++) columnY[i] = -64 + i + Math.sin(i) * 3;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void noise2D(Blackhole bh) {
+        for (int i = 0; i < SAMPLES; i++) bh.consume(noise.getNoise(i * 0.02, y));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void noise3D(Blackhole bh) {
+        for (int i = 0; i < SAMPLES; i++) bh.consume(noise.getNoise(i * 0.02, y, i * 0.013));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void fbm(Blackhole bh) {
+        for (int i = 0; i < SAMPLES; i++) bh.consume(noise.getFBM(i, i * 3, 0.0018f, 3));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public double[] noise3DBatched() {
+        noise.getNoise(xs, ys, zs, out, SAMPLES);
+        return out;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void noise3DColumn(Blackhole bh) {
+        for (int i = 0; i < SAMPLES; i++) bh.consume(noise.getNoise(0.5, ys[i], 0.25));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public double[] noise3DColumnBatched() {
+        noise.getNoise(0.5, ys, 0.25, out, SAMPLES);
+        return out;
+    }
+
+    // The four octave density column Chunk builds for every column (Chunk.fbm3DColumn), one sample
+    // at a time and through the column API with its scratch arrays
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void fbm3DColumn(Blackhole bh) {
+        for (int i = 0; i < SAMPLES; i++) {
+            float total = 0, freq = SCALE_3D, amp = 1, max = 0;
+            for (int o = 0; o < 4; o++) { total += (float) noise.getNoise(0.5 * freq, columnY[i] * freq, 0.25 * freq) * amp; max += amp; amp *= 0.5f; freq *= 2.0f; }
+            bh.consume(total / max);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public float[] fbm3DColumnBatched() {
+        Arrays.fill(fbmOut, 0f);
+        float freq = SCALE_3D, amp = 1, max = 0;
+        for (int o = 0; o < 4; o++) {
+            for (int i = 0; i < SAMPLES; i++) scratchY[i] = columnY[i] * freq;
+            noise.getNoise(0.5 * freq, scratchY, 0.25 * freq, out, SAMPLES);
+            for (int i = 0; i < SAMPLES; i++) fbmOut[i] += (float) out[i] * amp;
+            max += amp; amp *= 0.5f; freq *= 2.0f;
+        }
+        for (int i = 0; i < SAMPLES; i++) fbmOut[i] /= max;
+        return fbmOut;
+    }
+}
@@ -0,0 +1,50 @@
+package me.xeroday.world;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Biome classification alone and the full per-block lookup used by the HUD and map.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BiomeBenchmark {
+    private static final int SAMPLES = 1024;
+
+    private final float[] continent = new float[SAMPLES];
+    private final float[] temp = new float[SAMPLES];
+    private final float[] humidity = new float[SAMPLES];
+    private World world;
+
+    @Setup
+    public void setup() {
+        Random r = new Random(42);
+        for (int i = 0; i < SAMPLES; i++) {
+            continent[i] = r.nextFloat() * 2 - 1;
+            temp[i] = r.nextFloat() * 2 - 1;
+            humidity[i] = r.nextFloat() * 2 - 1;
+        }
+        world = new World(1337, null);
+    }
+
+    @TearDown
+    public void tearDown() {
+        world.cleanup();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void getBiome(Blackhole bh) {
+        for (int i = 0; i < SAMPLES; i++) bh.consume(Biome.getBiome(continent[i], temp[i], humidity[i]));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void getBiomeAt(Blackhole bh) {
+        for (int i = 0; i < SAMPLES; i++) bh.consume(world.getBiomeAt(i * 7, i * 13));
+    }
+}
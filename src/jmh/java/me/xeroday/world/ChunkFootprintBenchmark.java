@@ -0,0 +1,109 @@
+package me.xeroday.world;
+
+import me.xeroday.utils.PerlinNoise;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Block storage of a generated 8x8 chunk area in the palette sections chunks keep now, against one
+ * flat byte[] per chunk and the byte[16][384][16] chunks had before. bytesPerChunk (an aux counter
+ * next to the score) is the heap each layout needs per chunk, from Chunk.getStorageBytes for the
+ * palette and from the array sizes (16 byte headers, 4 byte references) for the others. The score
+ * is what reading a random block costs in that layout.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ChunkFootprintBenchmark {
+    public enum Layout { PALETTE, FLAT, JAGGED }
+
+    @Param({"PALETTE", "FLAT", "JAGGED"})
+    public Layout layout;
+
+    private static final int AREA = 8;
+    private static final int HEIGHT = Chunk.MAX_Y - Chunk.MIN_Y;
+    private static final int READS = 1024;
+
+    private Chunk[] chunks;
+    private byte[][] flat;
+    private byte[][][][] jagged;
+    private final int[] reads = new int[READS * 4]; // chunk, x, y, z
+    private long bytesPerChunk;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long bytesPerChunk;
+
+        @Setup(Level.Iteration)
+        public void record(ChunkFootprintBenchmark b) { bytesPerChunk = b.bytesPerChunk; }
+    }
+
+    @Setup
+    public void setup() {
+        PerlinNoise noise = new PerlinNoise(1337);
+        chunks = new Chunk[AREA * AREA];
+        for (int i = 0; i < chunks.length; i++) chunks[i] = Chunk.generate(i % AREA, i / AREA, noise);
+
+        long bytes = 0;
+        switch (layout) {
+            case PALETTE -> {
+                for (Chunk c : chunks) bytes += c.getStorageBytes();
+            }
+            case FLAT -> {
+                flat = new byte[chunks.length][];
+                for (int i = 0; i < chunks.length; i++) {
+                    byte[] blocks = flat[i] = new byte[Chunk.SIZE * Chunk.SIZE * HEIGHT];
+                    for (int y = 0; y < HEIGHT; y++) {
+                        for (int z = 0; z < Chunk.SIZE; z++) {
+                            for (int x = 0; x < Chunk.SIZE; x++) blocks[(y << 8) | (z << 4) | x] = chunks[i].getB(x, y + Chunk.MIN_Y, z);
+                        }
+                    }
+                    bytes += 16 + blocks.length;
+                }
+            }
+            case JAGGED -> {
+                jagged = new byte[chunks.length][][][];
+                for (int i = 0; i < chunks.length; i++) {
+                    byte[][][] blocks = jagged[i] = new byte[Chunk.SIZE][HEIGHT][Chunk.SIZE];
+                    for (int x = 0; x < Chunk.SIZE; x++) {
+                        for (int y = 0; y < HEIGHT; y++) {
+                            for (int z = 0; z < Chunk.SIZE; z++) blocks[x][y][z] = chunks[i].getB(x, y + Chunk.MIN_Y, z);
+                        }
+                    }
+                    bytes += 16 + Chunk.SIZE * 4 + Chunk.SIZE * (16 + HEIGHT * 4 + HEIGHT * (16 + Chunk.SIZE));
+                }
+            }
+        }
+        bytesPerChunk = bytes / chunks.length;
+
+        Random r = new Random(42);
+        for (int i = 0; i < reads.length; i += 4) {
+            reads[i] = r.nextInt(chunks.length);
+            reads[i + 1] = r.nextInt(Chunk.SIZE);
+            reads[i + 2] = r.nextInt(HEIGHT);
+            reads[i + 3] = r.nextInt(Chunk.SIZE);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(READS)
+    public int getB(Footprint footprint) {
+        int sum = 0;
+        int[] reads = this.reads;
+        switch (layout) {
+            case PALETTE -> {
+                for (int i = 0; i < reads.length; i += 4) sum += chunks[reads[i]].getB(reads[i + 1], reads[i + 2] + Chunk.MIN_Y, reads[i + 3]);
+            }
+            case FLAT -> {
+                for (int i = 0; i < reads.length; i += 4) sum += flat[reads[i]][(reads[i + 2] << 8) | (reads[i + 3] << 4) | reads[i + 1]];
+            }
+            case JAGGED -> {
+                for (int i = 0; i < reads.length; i += 4) sum += jagged[reads[i]][reads[i + 1]][reads[i + 2]][reads[i + 3]];
+            }
+        }
+        return sum;
+    }
+}
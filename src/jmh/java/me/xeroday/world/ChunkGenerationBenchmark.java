@@ -0,0 +1,39 @@
+package me.xeroday.world;
+
+import me.xeroday.utils.PerlinNoise;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full terrain + vegetation generation of one chunk, reported as chunks/sec.
+ * Each invocation generates the next chunk along a line so results are not one lucky chunk.
+ * lerpTerrain compares the exact per-voxel density against the interpolated lattice,
+ * parallelColumns the sequential column loop against the fork-join split.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ChunkGenerationBenchmark {
+    @Param({"false", "true"})
+    public boolean lerpTerrain;
+
+    @Param({"false", "true"})
+    public boolean parallelColumns;
+
+    private PerlinNoise noise;
+    private int next;
+
+    @Setup
+    public void setup() {
+        noise = new PerlinNoise(1337);
+        next = 0;
+        Chunk.LERP_TERRAIN = lerpTerrain;
+    }
+
+    @Benchmark
+    public Chunk generate() {
+        int i = next++ & 63;
+        return Chunk.generate(i * 3, i * 5, noise, parallelColumns);
+    }
+}
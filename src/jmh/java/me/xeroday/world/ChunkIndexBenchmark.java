@@ -0,0 +1,85 @@
+package me.xeroday.world;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chunk lookups the way mesh threads do them (a chunk and its four neighbours) from 4 threads,
+ * over a full render distance of empty chunks. MAP is the ConcurrentHashMap<Long, Chunk> World used
+ * to keep, INDEX is ChunkIndex. The recentring group adds a writer that walks the player along x,
+ * loading the new column and unloading the old one like World.update.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ChunkIndexBenchmark {
+    public enum Impl { MAP, INDEX }
+
+    private static final int RADIUS = 16, UNLOAD = RADIUS + 2;
+
+    @Param({"MAP", "INDEX"})
+    public Impl impl;
+
+    private Map<Long, Chunk> map;
+    private ChunkIndex index;
+    private volatile int playerX;
+    private int writerX;
+
+    @Setup
+    public void setup() {
+        map = new ConcurrentHashMap<>();
+        index = new ChunkIndex(UNLOAD);
+        playerX = writerX = 0;
+        for (int x = -RADIUS; x <= RADIUS; x++) {
+            for (int z = -RADIUS; z <= RADIUS; z++) add(new Chunk(x, z));
+        }
+    }
+
+    private void add(Chunk c) {
+        if (impl == Impl.MAP) map.put(ChunkIndex.key(c.cx, c.cz), c); else index.put(c);
+    }
+
+    private void remove(int x, int z) {
+        if (impl == Impl.MAP) map.remove(ChunkIndex.key(x, z)); else index.remove(x, z);
+    }
+
+    private Chunk get(int x, int z) {
+        return impl == Impl.MAP ? map.get(ChunkIndex.key(x, z)) : index.get(x, z);
+    }
+
+    private void lookupNeighbours(Blackhole bh) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int x = playerX + random.nextInt(-RADIUS + 1, RADIUS), z = random.nextInt(-RADIUS + 1, RADIUS);
+        bh.consume(get(x, z));
+        bh.consume(get(x + 1, z)); bh.consume(get(x - 1, z));
+        bh.consume(get(x, z + 1)); bh.consume(get(x, z - 1));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void neighbours(Blackhole bh) {
+        lookupNeighbours(bh);
+    }
+
+    @Benchmark
+    @Group("recentring")
+    @GroupThreads(3)
+    public void recentringReaders(Blackhole bh) {
+        lookupNeighbours(bh);
+    }
+
+    @Benchmark
+    @Group("recentring")
+    @GroupThreads(1)
+    public void recentringWriter() {
+        int x = ++writerX;
+        for (int z = -RADIUS; z <= RADIUS; z++) add(new Chunk(x + RADIUS, z));
+        playerX = x;
+        for (int z = -RADIUS; z <= RADIUS; z++) remove(x - UNLOAD - 1, z);
+    }
+}
@@ -0,0 +1,93 @@
+package me.xeroday.world;
+
+import me.xeroday.utils.PerlinNoise;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The visible face scan computeMesh runs over every block (each one tests its six neighbours) on the
+ * flat y-major byte[] meshing uses now and on the byte[16][384][16] chunks used to keep, each walked
+ * in its own order (y/z/x against x/y/z). Faces on the chunk border count as visible in both, the
+ * whole computeMesh with its neighbour chunks is in ChunkMeshBenchmark.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ChunkLayoutBenchmark {
+    public enum Layout { FLAT, JAGGED }
+
+    @Param({"FLAT", "JAGGED"})
+    public Layout layout;
+
+    private static final int CHUNKS = 16;
+    private static final int SIZE = Chunk.SIZE, HEIGHT = Chunk.MAX_Y - Chunk.MIN_Y;
+    private static final boolean[] OPAQUE = new boolean[128];
+
+    private byte[][] flat;
+    private byte[][][][] jagged;
+    private int next;
+
+    @Setup
+    public void setup() {
+        for (int id = 0; id < OPAQUE.length; id++) OPAQUE[id] = Block.get((byte) id).opaque;
+        PerlinNoise noise = new PerlinNoise(1337);
+        flat = new byte[CHUNKS][SIZE * SIZE * HEIGHT];
+        jagged = new byte[CHUNKS][SIZE][HEIGHT][SIZE];
+        for (int i = 0; i < CHUNKS; i++) {
+            Chunk c = Chunk.generate(i * 3, i * 5, noise);
+            for (int x = 0; x < SIZE; x++) {
+                for (int y = 0; y < HEIGHT; y++) {
+                    for (int z = 0; z < SIZE; z++) {
+                        byte id = c.getB(x, y + Chunk.MIN_Y, z);
+                        flat[i][(y << 8) | (z << 4) | x] = id;
+                        jagged[i][x][y][z] = id;
+                    }
+                }
+            }
+        }
+        next = 0;
+    }
+
+    @Benchmark
+    public int visibleFaces() {
+        int i = next++ % CHUNKS;
+        return layout == Layout.FLAT ? scanFlat(flat[i]) : scanJagged(jagged[i]);
+    }
+
+    private static int scanFlat(byte[] b) {
+        int faces = 0, i = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int z = 0; z < SIZE; z++) {
+                for (int x = 0; x < SIZE; x++, i++) {
+                    if (b[i] == 0) continue;
+                    if (y == HEIGHT - 1 || !OPAQUE[b[i + 256] & 127]) faces++;
+                    if (y == 0 || !OPAQUE[b[i - 256] & 127]) faces++;
+                    if (z == SIZE - 1 || !OPAQUE[b[i + 16] & 127]) faces++;
+                    if (z == 0 || !OPAQUE[b[i - 16] & 127]) faces++;
+                    if (x == SIZE - 1 || !OPAQUE[b[i + 1] & 127]) faces++;
+                    if (x == 0 || !OPAQUE[b[i - 1] & 127]) faces++;
+                }
+            }
+        }
+        return faces;
+    }
+
+    private static int scanJagged(byte[][][] b) {
+        int faces = 0;
+        for (int x = 0; x < SIZE; x++) {
+            for (int y = 0; y < HEIGHT; y++) {
+                for (int z = 0; z < SIZE; z++) {
+                    if (b[x][y][z] == 0) continue;
+                    if (y == HEIGHT - 1 || !OPAQUE[b[x][y + 1][z] & 127]) faces++;
+                    if (y == 0 || !OPAQUE[b[x][y - 1][z] & 127]) faces++;
+                    if (z == SIZE - 1 || !OPAQUE[b[x][y][z + 1] & 127]) faces++;
+                    if (z == 0 || !OPAQUE[b[x][y][z - 1] & 127]) faces++;
+                    if (x == SIZE - 1 || !OPAQUE[b[x + 1][y][z] & 127]) faces++;
+                    if (x == 0 || !OPAQUE[b[x - 1][y][z] & 127]) faces++;
+                }
+            }
+        }
+        return faces;
+    }
+}
@@ -0,0 +1,46 @@
+package me.xeroday.world;
+
+import me.xeroday.utils.PerlinNoise;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chunk.computeMesh on a 3x3 block of chunks with all neighbours present.
+ * No GL context is needed: computeMesh only fills MeshBuilders, uploads happen on render.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ChunkMeshBenchmark {
+    @Param({"true", "false"})
+    public boolean greedy;
+
+    private World world;
+    private Chunk[] targets;
+    private int next;
+
+    @Setup
+    public void setup() {
+        world = new World(1337, null);
+        PerlinNoise noise = world.getNoise();
+        for (int x = -2; x <= 2; x++) {
+            for (int z = -2; z <= 2; z++) world.addChunk(Chunk.generate(x, z, noise));
+        }
+        targets = new Chunk[9];
+        for (int i = 0; i < 9; i++) targets[i] = world.getChunk(i % 3 - 1, i / 3 - 1);
+        Chunk.GREEDY_MESHING = greedy;
+    }
+
+    @TearDown
+    public void tearDown() {
+        world.cleanup();
+    }
+
+    @Benchmark
+    public Chunk computeMesh() {
+        Chunk c = targets[next++ % targets.length];
+        c.computeMesh(world);
+        return c;
+    }
+}
@@ -0,0 +1,46 @@
+package me.xeroday.world;
+
+import me.xeroday.engine.Camera;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to full render distance: a fresh World around a stationary camera is updated like the
+ * render loop would (one update per ~16 ms frame) until every chunk in range has a mesh.
+ * Chunks/sec is (2 * renderDist + 1)^2 divided by the score. Compares the ChunkScheduler pool
+ * with the virtual thread pipeline.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+public class ChunkPipelineBenchmark {
+    @Param({"SCHEDULER", "VIRTUAL"})
+    public World.Pipeline pipeline;
+
+    private World world;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        world = new World(1337, null, pipeline);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        world.cleanup();
+    }
+
+    @Benchmark
+    public int loadRenderDistance() throws InterruptedException {
+        Camera camera = new Camera();
+        int side = world.getRenderDistance() * 2 + 1;
+        int meshed;
+        while ((meshed = world.getMeshedChunkCount()) < side * side) {
+            world.update(camera);
+            Thread.sleep(16);
+        }
+        return meshed;
+    }
+}
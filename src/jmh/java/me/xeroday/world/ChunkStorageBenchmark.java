@@ -0,0 +1,55 @@
+package me.xeroday.world;
+
+import me.xeroday.utils.PerlinNoise;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Bringing a chunk back: reading it from a region file vs generating it again from noise.
+ * The same 64 chunks are written to a temporary world directory up front.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ChunkStorageBenchmark {
+    private static final int CHUNKS = 64;
+
+    private PerlinNoise noise;
+    private Path dir;
+    private ChunkStorage storage;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        noise = new PerlinNoise(1337);
+        dir = Files.createTempDirectory("xylo-storage-bench");
+        storage = new ChunkStorage(dir);
+        for (int i = 0; i < CHUNKS; i++) storage.save(Chunk.generate(i % 8, i / 8, noise));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        storage.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public Chunk loadFromDisk() {
+        int i = next++ % CHUNKS;
+        return storage.load(i % 8, i / 8);
+    }
+
+    @Benchmark
+    public Chunk regenerate() {
+        int i = next++ % CHUNKS;
+        return Chunk.generate(i % 8, i / 8, noise);
+    }
+}
@@ -0,0 +1,45 @@
+package me.xeroday.world;
+
+import me.xeroday.utils.PerlinNoise;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Far terrain on the CPU: building one FarTile per level (the same 65x65 samples whatever the level,
+ * each tile covering 4x the area of the one below), and the quadtree tile selection redone when the
+ * player crosses a chunk (select doesn't depend on the level). Compare build with
+ * ChunkGenerationBenchmark for the cost per block of ground covered.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FarTileBenchmark {
+    @Param({"1", "2", "3"})
+    public int level;
+
+    private PerlinNoise noise;
+    private final List<Long> tiles = new ArrayList<>();
+    private int next;
+
+    @Setup
+    public void setup() {
+        noise = new PerlinNoise(1337);
+        next = 0;
+    }
+
+    @Benchmark
+    public FarTile build() {
+        int i = next++ & 63;
+        return FarTile.build(noise, level, i * 3, i * 5);
+    }
+
+    @Benchmark
+    public int select() {
+        int i = next++ & 63;
+        FarTerrain.selectTiles(i, 0, 16, 128, tiles);
+        return tiles.size();
+    }
+}
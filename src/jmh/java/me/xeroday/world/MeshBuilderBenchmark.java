@@ -0,0 +1,109 @@
+package me.xeroday.world;
+
+import me.xeroday.utils.MeshBuilder;
+import org.lwjgl.system.MemoryUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The builder side of a remesh: the vertices of real chunk meshes written into four builders (one
+ * per render pass, sized like computeMesh does) and copied into a staging buffer, as the upload
+ * does with the mapped ring. ARRAY is the int[] builder computeMesh used to allocate per remesh,
+ * OFF_HEAP the pooled native MeshBuilder. Run with the GC profiler for the allocation rate:
+ *
+ *   ./gradlew jmh -PjmhInclude=MeshBuilder -PjmhProfilers=gc
+ *
+ * ChunkMeshBenchmark with the same profiler shows the whole remesh.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MeshBuilderBenchmark {
+    public enum Impl { ARRAY, OFF_HEAP }
+
+    private static final int[] INITIAL = { 8192, 2048, 2048, 2048 };
+
+    @Param({"ARRAY", "OFF_HEAP"})
+    public Impl impl;
+
+    private int[][][] meshes; // [chunk][pass] vertex ints
+    private ByteBuffer staging;
+    private int next;
+
+    @Setup
+    public void setup() {
+        World world = new World(1337, null);
+        for (int x = -2; x <= 2; x++) {
+            for (int z = -2; z <= 2; z++) world.addChunk(Chunk.generate(x, z, world.getNoise()));
+        }
+        meshes = new int[9][][];
+        for (int i = 0; i < 9; i++) {
+            Chunk c = world.getChunk(i % 3 - 1, i / 3 - 1);
+            c.computeMesh(world);
+            Chunk.BuiltMesh built = c.takePendingMesh();
+            meshes[i] = new int[built.passes.length][];
+            for (int pass = 0; pass < built.passes.length; pass++) {
+                MeshBuilder b = built.passes[pass];
+                meshes[i][pass] = new int[b.size()];
+                for (int j = 0; j < b.size(); j++) meshes[i][pass][j] = b.get(j);
+            }
+            built.release();
+        }
+        world.cleanup();
+        staging = MemoryUtil.memAlloc(16 * 1024 * 1024);
+    }
+
+    @TearDown
+    public void tearDown() {
+        MemoryUtil.memFree(staging);
+    }
+
+    @Benchmark
+    public int remesh() {
+        int[][] mesh = meshes[next++ % meshes.length];
+        return impl == Impl.ARRAY ? viaArray(mesh) : viaOffHeap(mesh);
+    }
+
+    private int viaArray(int[][] mesh) {
+        int bytes = 0;
+        for (int pass = 0; pass < mesh.length; pass++) {
+            ArrayBuilder b = new ArrayBuilder(INITIAL[pass]);
+            int[] v = mesh[pass];
+            for (int i = 0; i < v.length; i += 2) b.addVertex(v[i], v[i + 1]);
+            staging.clear();
+            staging.asIntBuffer().put(b.data, 0, b.size);
+            bytes += b.size * 4;
+        }
+        return bytes;
+    }
+
+    private int viaOffHeap(int[][] mesh) {
+        int bytes = 0;
+        for (int pass = 0; pass < mesh.length; pass++) {
+            MeshBuilder b = MeshBuilder.acquire(INITIAL[pass]);
+            int[] v = mesh[pass];
+            for (int i = 0; i < v.length; i += 2) b.addVertex(v[i], v[i + 1]);
+            MemoryUtil.memCopy(b.address(), MemoryUtil.memAddress(staging), b.size() * 4L);
+            bytes += b.size() * 4;
+            b.release();
+        }
+        return bytes;
+    }
+
+    // The previous heap builder: doubled with Arrays.copyOf
+    private static class ArrayBuilder {
+        int[] data;
+        int size;
+
+        ArrayBuilder(int initialCapacity) { data = new int[initialCapacity]; }
+
+        void addVertex(int a, int b) {
+            if (size + 2 > data.length) data = Arrays.copyOf(data, data.length * 2);
+            data[size++] = a;
+            data[size++] = b;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package me.xeroday.world;
+
+import me.xeroday.engine.Camera;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Render thread cost of World.update per frame with every chunk in range already loaded (empty
+ * chunks, so nothing is generated or meshed). STATIONARY is a frame where the player stays in the
+ * same chunk, WALKING crosses into the next chunk every frame; the column coming into range is
+ * added before the update, as if it had just finished loading.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WorldUpdateBenchmark {
+    public enum Motion { STATIONARY, WALKING }
+
+    @Param({"8", "16", "32"})
+    public int renderDistance;
+
+    @Param({"STATIONARY", "WALKING"})
+    public Motion motion;
+
+    private World world;
+    private Camera camera;
+    private int chunkX;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        World.RENDER_DISTANCE = renderDistance;
+        world = new World(1337, null);
+        camera = new Camera();
+        camera.x = 8; camera.z = 8;
+        chunkX = 0;
+        int unload = renderDistance + 2;
+        for (int x = -unload; x <= unload; x++) {
+            for (int z = -unload; z <= unload; z++) world.addChunk(new Chunk(x, z));
+        }
+        world.update(camera);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        world.cleanup();
+        World.RENDER_DISTANCE = Integer.getInteger("xylo.renderDistance", 16);
+    }
+
+    @Benchmark
+    public void update() {
+        if (motion == Motion.WALKING) {
+            chunkX++;
+            int x = chunkX + renderDistance;
+            for (int z = -renderDistance; z <= renderDistance; z++) world.addChunk(new Chunk(x, z));
+            camera.x += Chunk.SIZE;
+        }
+        world.update(camera);
+    }
+}
@@ -3,8 +3,11 @@ package me.xeroday;
 import me.xeroday.engine.*;
 import me.xeroday.utils.DiscordIntegration;
 import me.xeroday.world.Biome;
-import me.xeroday.world.World;
 import me.xeroday.world.Chunk;
+import me.xeroday.world.World;
+import me.xeroday.world.ChunkMesh;
+import me.xeroday.world.ChunkVertex;
+import me.xeroday.world.RenderDistanceController;
 import org.lwjgl.glfw.*;
 import org.lwjgl.opengl.*;
 import org.joml.Matrix4f;
@@ -26,6 +29,9 @@ public class Main {
     private boolean isMapOpen = false;
     private boolean mKeyPressed = false; // Debounce
 
+    // --seed <n> on the command line, otherwise -Dxylo.seed or random
+    private int seed = World.defaultSeed();
+
     public void run() {
         if (!glfwInit()) return;
 
@@ -59,6 +65,17 @@ public class Main {
         Shader solidShader = new Shader("/shaders/world.vert", "/shaders/solid.frag");
         Shader shortGrassShader = new Shader("/shaders/grass_short.vert", "/shaders/grass_short.frag");
         Shader tallGrassShader = new Shader("/shaders/grass_tall.vert", "/shaders/grass_tall.frag");
+        Shader farShader = new Shader("/shaders/far.vert", "/shaders/far.frag");
+
+        // Tint/shade palette referenced by the packed chunk vertices
+        float[] palette = ChunkVertex.buildPalette();
+        for (Shader s : new Shader[]{solidShader, shortGrassShader, tallGrassShader}) {
+            s.bind();
+            s.setUniform("palette", palette);
+            s.setUniform("chunkOrigins", ChunkMesh.ORIGIN_TEXTURE_UNIT);
+        }
+        farShader.bind();
+        farShader.setUniform("palette", palette);
 
         TextureManager textures = new TextureManager(
                 "grass_block_top.png",  // 0
@@ -76,7 +93,8 @@ public class Main {
                 "tall_grass_top.png"    // 12
         );
 
-        World world = new World();
+        World world = new World(seed);
+        RenderDistanceController renderDistance = new RenderDistanceController(world.getRenderDistance(), World.MIN_RENDER_DISTANCE, World.MAX_RENDER_DISTANCE);
         TextRenderer textRenderer = new TextRenderer();
         MapRenderer mapRenderer = new MapRenderer();
 
@@ -128,6 +146,11 @@ public class Main {
                     lastY = ypos[0];
                 }
             }
+            // Render distance on [ and ], the adaptive controller (if on) carries on from there
+            if ((key == GLFW_KEY_LEFT_BRACKET || key == GLFW_KEY_RIGHT_BRACKET) && action != GLFW_RELEASE) {
+                renderDistance.setDistance(System.nanoTime(), renderDistance.getDistance() + (key == GLFW_KEY_LEFT_BRACKET ? -1 : 1));
+                world.setRenderDistance(renderDistance.getDistance());
+            }
             // Close map on ESC or Exit
             if (key == GLFW_KEY_ESCAPE && action == GLFW_PRESS) {
                 if (isMapOpen) {
@@ -150,9 +173,17 @@ public class Main {
         long lastTime = System.currentTimeMillis();
         double prevPosX = camera.x, prevPosY = camera.y, prevPosZ = camera.z;
         double currentSpeed = 0;
+        long lastFrame = System.nanoTime();
 
         while (!glfwWindowShouldClose(window)) {
-            Chunk.nextFrame();
+            long frameStart = System.nanoTime();
+            float frameMillis = (frameStart - lastFrame) / 1e6f;
+            lastFrame = frameStart;
+            if (RenderDistanceController.ENABLED) {
+                world.setRenderDistance(renderDistance.update(frameStart, frameMillis, world.getGenerationBacklog(), RenderDistanceController.heapFree()));
+            }
+
+            ChunkMesh.nextFrame();
             int[] width = new int[1], height = new int[1];
             glfwGetFramebufferSize(window, width, height);
             glViewport(0, 0, width[0], height[0]);
@@ -179,7 +210,8 @@ public class Main {
 
             // 3D Render Setup
             float aspectRat = (float) width[0] / height[0];
-            projectionMatrix.identity().perspective((float) Math.toRadians(65.0f), aspectRat, 0.1f, 1000.0f);
+            float far = Math.max(1000.0f, world.getVisibleDistance() * Chunk.SIZE * 1.5f); // past the far corners
+            projectionMatrix.identity().perspective((float) Math.toRadians(65.0f), aspectRat, 0.1f, far);
             viewMatrix.set(camera.getViewMatrix());
             Matrix4f viewProj = new Matrix4f(projectionMatrix).mul(viewMatrix);
 
@@ -200,12 +232,17 @@ public class Main {
             tallGrassShader.setUniform("projection", projectionMatrix);
             tallGrassShader.setUniform("view", viewMatrix);
             tallGrassShader.setUniform("textureSampler", 0);
-            tallGrassShader.unbind(); // Done setting up
+
+            farShader.bind();
+            farShader.setUniform("projection", projectionMatrix);
+            farShader.setUniform("view", viewMatrix);
+            farShader.setUniform("textureSampler", 0);
+            farShader.unbind(); // Done setting up
 
             textures.bind();
 
             // Pass all shaders
-            world.render(solidShader, shortGrassShader, tallGrassShader, viewProj, camPos);
+            world.render(solidShader, shortGrassShader, tallGrassShader, farShader, viewProj, camPos);
 
             // 2D UI Render
             if (isMapOpen) {
@@ -215,11 +252,18 @@ public class Main {
                 // Draw HUD
                 Biome currentBiome = world.getBiomeAt((int)camera.x, (int)camera.z);
                 String stats = String.format(
-                        "FPS: %d\nXYZ: %.1f / %.1f / %.1f\nBiome: %s\nDir: %s\nSpeed: %.1f m/s\n[M] Map",
+                        "FPS: %d\nXYZ: %.1f / %.1f / %.1f\nBiome: %s\nDir: %s\nSpeed: %.1f m/s\nRender distance: %s\nChunks: %s\nRemesh: %d requests, %d jobs saved\nMeshes: %s\nUploads: %s\nCulling: %s\nFar terrain: %s\n[M] Map",
                         lastFPS, camera.x, camera.y, camera.z,
                         currentBiome.name(),
                         getDirection(camera.yaw, camera.pitch),
-                        currentSpeed
+                        currentSpeed,
+                        RenderDistanceController.ENABLED ? renderDistance.getStats() : world.getRenderDistance() + " ([ and ])",
+                        world.getPipelineStats(),
+                        world.getMeshRequests(), world.getMeshJobsSaved(),
+                        ChunkMesh.getStats(),
+                        world.getUploadStats(),
+                        world.getCullingStats(),
+                        world.getFarTerrainStats()
                 );
                 textRenderer.drawString(stats, 10, 10, 1.0f, width[0], height[0]);
             }
@@ -234,8 +278,10 @@ public class Main {
         solidShader.cleanup();
         shortGrassShader.cleanup();
         tallGrassShader.cleanup();
+        farShader.cleanup();
         textures.cleanup();
         world.cleanup();
+        ChunkMesh.cleanupShared();
         glfwTerminate();
     }
 
@@ -251,5 +297,11 @@ public class Main {
         return "?";
     }
 
-    public static void main(String[] args) { new Main().run(); }
+    public static void main(String[] args) {
+        Main main = new Main();
+        for (int i = 0; i + 1 < args.length; i++) {
+            if (args[i].equals("--seed")) main.seed = World.parseSeed(args[i + 1]);
+        }
+        main.run();
+    }
 }
\ No newline at end of file
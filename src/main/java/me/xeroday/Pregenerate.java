@@ -0,0 +1,99 @@
+package me.xeroday;
+
+import me.xeroday.utils.PerlinNoise;
+import me.xeroday.world.Chunk;
+import me.xeroday.world.ChunkStorage;
+import me.xeroday.world.World;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Headless pre-generation, no window or GL context: generates every chunk within a radius of a
+ * centre chunk and writes it to the same region files the game loads (saveDir/seed_<seed>).
+ * Chunks already on disk are skipped, so an interrupted run can simply be started again.
+ *
+ *   Pregenerate --seed 42 --radius 64 [--threads n] [--center x z] [--saveDir saves]
+ */
+public class Pregenerate {
+    public static void main(String[] args) throws Exception {
+        int seed = World.defaultSeed(), radius = 32, centerX = 0, centerZ = 0;
+        int threads = Runtime.getRuntime().availableProcessors(); // nothing else to leave a core for
+        Path saveDir = Paths.get(System.getProperty("xylo.saveDir", "saves"));
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--seed" -> seed = World.parseSeed(args[++i]);
+                case "--radius" -> radius = Integer.parseInt(args[++i]);
+                case "--threads" -> threads = Integer.parseInt(args[++i]);
+                case "--center" -> { centerX = Integer.parseInt(args[++i]); centerZ = Integer.parseInt(args[++i]); }
+                case "--saveDir" -> saveDir = Paths.get(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+
+        // nearest chunks first, so a run stopped early still leaves a usable area around the centre
+        int side = radius * 2 + 1;
+        Integer[] order = new Integer[side * side];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, Comparator.comparingInt(i -> {
+            int dx = i % side - side / 2, dz = i / side - side / 2;
+            return dx * dx + dz * dz;
+        }));
+
+        Path worldDir = saveDir.resolve("seed_" + seed);
+        System.out.printf("Pre-generating %d chunks (seed %d, radius %d around %d, %d) on %d threads into %s%n",
+                order.length, seed, radius, centerX, centerZ, threads, worldDir);
+
+        PerlinNoise noise = new PerlinNoise(seed);
+        ChunkStorage storage = new ChunkStorage(worldDir);
+        AtomicInteger next = new AtomicInteger();
+        AtomicLong generated = new AtomicLong(), skipped = new AtomicLong();
+        AtomicLong genNanos = new AtomicLong(), saveNanos = new AtomicLong();
+        int cx0 = centerX - radius, cz0 = centerZ - radius;
+
+        Thread[] workers = new Thread[threads];
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < order.length) {
+                    int cx = cx0 + order[i] % side, cz = cz0 + order[i] / side;
+                    if (storage.contains(cx, cz)) { skipped.incrementAndGet(); continue; }
+                    long t0 = System.nanoTime();
+                    Chunk c = Chunk.generate(cx, cz, noise);
+                    long t1 = System.nanoTime();
+                    storage.save(c);
+                    genNanos.addAndGet(t1 - t0);
+                    saveNanos.addAndGet(System.nanoTime() - t1);
+                    generated.incrementAndGet();
+                }
+            }, "Pregen Worker " + t);
+            workers[t].start();
+        }
+
+        // progress every few seconds until the workers are done
+        long lastReport = start;
+        for (Thread worker : workers) {
+            while (worker.isAlive()) {
+                worker.join(1000);
+                if (System.nanoTime() - lastReport < 5_000_000_000L) continue;
+                lastReport = System.nanoTime();
+                long count = generated.get() + skipped.get();
+                double seconds = (lastReport - start) / 1e9;
+                System.out.printf("  %d / %d (%.1f%%), %.0f chunks/s%n", count, order.length, 100.0 * count / order.length, generated.get() / seconds);
+            }
+        }
+        storage.close();
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long count = Math.max(1, generated.get());
+        System.out.printf("Done in %.1f s: %d generated, %d already on disk, %.0f chunks/s%n",
+                seconds, generated.get(), skipped.get(), generated.get() / seconds);
+        System.out.printf("Per chunk (one thread): %.2f ms generation, %.2f ms save%n",
+                genNanos.get() / 1e6 / count, saveNanos.get() / 1e6 / count);
+    }
+}
@@ -113,11 +113,20 @@ public class MapRenderer {
 
     private void generateMapTexture(World world, int cx, int cz) {
         ByteBuffer buffer = MemoryUtil.memAlloc(MAP_SIZE * MAP_SIZE * 4);
-        int startX = cx - (MAP_SIZE / 2);
-        int startZ = cz - (MAP_SIZE / 2);
+        fillBiomeColors(world, cx, cz, MAP_SIZE, buffer);
+        buffer.flip();
+        glBindTexture(GL_TEXTURE_2D, mapTextureId);
+        glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, MAP_SIZE, MAP_SIZE, 0, GL_RGBA, GL_UNSIGNED_BYTE, buffer);
+        MemoryUtil.memFree(buffer);
+    }
 
-        for (int z = 0; z < MAP_SIZE; z++) {
-            for (int x = 0; x < MAP_SIZE; x++) {
+    // Samples size x size biomes centred on (cx, cz) as RGBA. No GL calls, so it can run headless.
+    static void fillBiomeColors(World world, int cx, int cz, int size, ByteBuffer buffer) {
+        int startX = cx - (size / 2);
+        int startZ = cz - (size / 2);
+
+        for (int z = 0; z < size; z++) {
+            for (int x = 0; x < size; x++) {
                 Biome b = world.getBiomeAt(startX + x, startZ + z);
                 int r=0, g=0, bl=0;
                 // Simple colors
@@ -134,10 +143,6 @@ public class MapRenderer {
                 buffer.put((byte) r).put((byte) g).put((byte) bl).put((byte) 255);
             }
         }
-        buffer.flip();
-        glBindTexture(GL_TEXTURE_2D, mapTextureId);
-        glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, MAP_SIZE, MAP_SIZE, 0, GL_RGBA, GL_UNSIGNED_BYTE, buffer);
-        MemoryUtil.memFree(buffer);
     }
 
     public void cleanup() {
@@ -7,6 +7,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.FloatBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Scanner;
 
 import static org.lwjgl.opengl.GL33.*;
@@ -14,6 +16,7 @@ import static org.lwjgl.opengl.GL33.*;
 public class Shader {
     private final int programId;
     private int vsId, fsId;
+    private final Map<String, Integer> uniformLocations = new HashMap<>(); // some uniforms are set per chunk
 
     public Shader(String vertexPath, String fragmentPath) {
         String vsSrc = loadResource(vertexPath);
@@ -54,8 +57,17 @@ public class Shader {
     public void bind() { glUseProgram(programId); }
     public void unbind() { glUseProgram(0); }
 
+    private int getLocation(String name) {
+        Integer loc = uniformLocations.get(name);
+        if (loc == null) {
+            loc = glGetUniformLocation(programId, name);
+            uniformLocations.put(name, loc);
+        }
+        return loc;
+    }
+
     public void setUniform(String name, Matrix4f mat) {
-        int loc = glGetUniformLocation(programId, name);
+        int loc = getLocation(name);
         if (loc == -1) return;
         try (MemoryStack stack = MemoryStack.stackPush()) {
             FloatBuffer fb = stack.mallocFloat(16);
@@ -65,12 +77,33 @@ public class Shader {
     }
 
     public void setUniform(String name, Vector3f vec) {
-        int loc = glGetUniformLocation(programId, name);
+        int loc = getLocation(name);
         if (loc != -1) glUniform3f(loc, vec.x, vec.y, vec.z);
     }
 
+    public void setUniform(String name, float x, float y, float z) {
+        int loc = getLocation(name);
+        if (loc != -1) glUniform3f(loc, x, y, z);
+    }
+
+    public void setUniform(String name, float x, float y, float z, float w) {
+        int loc = getLocation(name);
+        if (loc != -1) glUniform4f(loc, x, y, z, w);
+    }
+
+    // vec3 array, values packed as x,y,z triples
+    public void setUniform(String name, float[] vec3s) {
+        int loc = getLocation(name);
+        if (loc == -1) return;
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            FloatBuffer fb = stack.mallocFloat(vec3s.length);
+            fb.put(vec3s).flip();
+            glUniform3fv(loc, fb);
+        }
+    }
+
     public void setUniform(String name, int val) {
-        int loc = glGetUniformLocation(programId, name);
+        int loc = getLocation(name);
         if (loc != -1) glUniform1i(loc, val);
     }
 
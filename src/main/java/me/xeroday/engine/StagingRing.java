@@ -0,0 +1,105 @@
+package me.xeroday.engine;
+
+import me.xeroday.utils.RingAllocator;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+import static org.lwjgl.opengl.GL33.*;
+
+/**
+ * Upload path for buffer data: one stream buffer used as a ring. Each upload maps its slice
+ * unsynchronized, copies the data straight from native memory into it, and the GPU moves it into
+ * the destination buffer with glCopyBufferSubData, so nothing is allocated per upload and the
+ * driver never has to stall on a buffer that is still in use.
+ *
+ * The ring is fenced once a frame (endFrame). Space written before a fence is only reused after
+ * the fence has signalled; when the ring is full the oldest fence is waited on. The space itself is
+ * tracked by a RingAllocator, this class only keeps the GL sync object of each of its groups.
+ */
+public class StagingRing {
+    private static final int ALIGN = 16;
+
+    private final int buffer;
+    private final RingAllocator ring;
+    private final ArrayDeque<Long> fences = new ArrayDeque<>(); // one sync per fenced group of ring, oldest first
+
+    // METRICS
+    private long uploads, bytesUploaded, waits;
+
+    public StagingRing(int capacity) {
+        this.ring = new RingAllocator(capacity);
+        this.buffer = glGenBuffers();
+        glBindBuffer(GL_COPY_READ_BUFFER, buffer);
+        glBufferData(GL_COPY_READ_BUFFER, capacity, GL_STREAM_DRAW);
+        glBindBuffer(GL_COPY_READ_BUFFER, 0);
+    }
+
+    // Copies count ints at address into target at targetOffset (bytes). False if it can never fit in the ring.
+    public boolean upload(long address, int count, int target, long targetOffset) {
+        int bytes = count * 4;
+        int size = (bytes + ALIGN - 1) & -ALIGN;
+        if (size > ring.capacity()) return false;
+
+        int head;
+        while ((head = ring.alloc(size)) < 0) {
+            if (fences.isEmpty()) fence();
+            waitOldest();
+        }
+
+        glBindBuffer(GL_COPY_READ_BUFFER, buffer);
+        ByteBuffer mapped = glMapBufferRange(GL_COPY_READ_BUFFER, head, size, GL_MAP_WRITE_BIT | GL_MAP_UNSYNCHRONIZED_BIT | GL_MAP_INVALIDATE_RANGE_BIT);
+        MemoryUtil.memCopy(address, MemoryUtil.memAddress(mapped), bytes);
+        glUnmapBuffer(GL_COPY_READ_BUFFER);
+        glBindBuffer(GL_COPY_WRITE_BUFFER, target);
+        glCopyBufferSubData(GL_COPY_READ_BUFFER, GL_COPY_WRITE_BUFFER, head, targetOffset, bytes);
+        glBindBuffer(GL_COPY_WRITE_BUFFER, 0);
+        glBindBuffer(GL_COPY_READ_BUFFER, 0);
+
+        uploads++;
+        bytesUploaded += bytes;
+        return true;
+    }
+
+    // Call once a frame: fences this frame's uploads and frees space whose fence already signalled
+    public void endFrame() {
+        if (ring.hasUnfenced()) fence();
+        while (!fences.isEmpty()) {
+            int status = glClientWaitSync(fences.peek(), 0, 0);
+            if (status != GL_ALREADY_SIGNALED && status != GL_CONDITION_SATISFIED) break;
+            retireOldest();
+        }
+    }
+
+    public long getUploads() { return uploads; }
+    public long getBytesUploaded() { return bytesUploaded; }
+    public long getWaits() { return waits; }
+    public int getUsedBytes() { return ring.used(); }
+
+    public void cleanup() {
+        for (long sync : fences) glDeleteSync(sync);
+        fences.clear();
+        glDeleteBuffers(buffer);
+    }
+
+    private void fence() {
+        fences.add(glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0));
+        ring.fence();
+    }
+
+    private void waitOldest() {
+        long sync = fences.peek();
+        waits++;
+        int status;
+        do {
+            status = glClientWaitSync(sync, GL_SYNC_FLUSH_COMMANDS_BIT, 1_000_000_000L);
+        } while (status == GL_TIMEOUT_EXPIRED);
+        retireOldest();
+    }
+
+    private void retireOldest() {
+        glDeleteSync(fences.poll());
+        ring.retireOldest();
+    }
+}
@@ -0,0 +1,137 @@
+package me.xeroday.utils;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Sub-allocates ranges of one large buffer (units are up to the caller, e.g. vertices). No GL here,
+ * the owner copies the data when compact() moves allocations.
+ *
+ * Free ranges are kept sorted by offset and merged with their neighbours on free, allocation takes
+ * the smallest free range that fits (best fit keeps the big ranges for big meshes).
+ */
+public class ArenaAllocator {
+    private int capacity;
+    private final TreeMap<Integer, Integer> free = new TreeMap<>(); // offset -> size
+    private final TreeMap<Integer, Allocation> live = new TreeMap<>(); // offset -> allocation
+    private int used;
+
+    public static class Allocation {
+        int offset;
+        final int size;
+        Allocation(int offset, int size) { this.offset = offset; this.size = size; }
+        public int offset() { return offset; }
+        public int size() { return size; }
+    }
+
+    // One range moved by compact(): copy size units from oldOffset to newOffset
+    public record Move(int oldOffset, int newOffset, int size) {}
+
+    public ArenaAllocator(int capacity) {
+        this.capacity = capacity;
+        if (capacity > 0) free.put(0, capacity);
+    }
+
+    // null if no single free range is large enough (see compact)
+    public Allocation alloc(int size) {
+        if (size <= 0) throw new IllegalArgumentException("size " + size);
+        int bestOffset = -1, bestSize = Integer.MAX_VALUE;
+        for (Map.Entry<Integer, Integer> e : free.entrySet()) {
+            int s = e.getValue();
+            if (s >= size && s < bestSize) {
+                bestOffset = e.getKey(); bestSize = s;
+                if (s == size) break;
+            }
+        }
+        if (bestOffset < 0) return null;
+
+        free.remove(bestOffset);
+        if (bestSize > size) free.put(bestOffset + size, bestSize - size);
+        Allocation a = new Allocation(bestOffset, size);
+        live.put(bestOffset, a);
+        used += size;
+        return a;
+    }
+
+    public void free(Allocation a) {
+        if (a == null || live.get(a.offset) != a) throw new IllegalArgumentException("Not allocated here");
+        live.remove(a.offset);
+        used -= a.size;
+
+        int offset = a.offset, size = a.size;
+        Map.Entry<Integer, Integer> before = free.floorEntry(offset);
+        if (before != null && before.getKey() + before.getValue() == offset) {
+            free.remove(before.getKey());
+            offset = before.getKey(); size += before.getValue();
+        }
+        Integer after = free.get(offset + size);
+        if (after != null) {
+            free.remove(offset + size);
+            size += after;
+        }
+        free.put(offset, size);
+    }
+
+    /**
+     * Packs every allocation to the start of an arena of newCapacity (>= used) and updates the
+     * allocations in place. Returns the moves in ascending order; none of them overlap when copied
+     * into a separate buffer.
+     */
+    public List<Move> compact(int newCapacity) {
+        if (newCapacity < used) throw new IllegalArgumentException("capacity " + newCapacity + " < used " + used);
+        List<Move> moves = new ArrayList<>();
+        List<Allocation> allocations = new ArrayList<>(live.values());
+        live.clear();
+        int offset = 0;
+        for (Allocation a : allocations) {
+            moves.add(new Move(a.offset, offset, a.size));
+            a.offset = offset;
+            live.put(offset, a);
+            offset += a.size;
+        }
+        capacity = newCapacity;
+        free.clear();
+        if (offset < capacity) free.put(offset, capacity - offset);
+        return moves;
+    }
+
+    public int capacity() { return capacity; }
+    public int used() { return used; }
+    public int freeRanges() { return free.size(); }
+    public int allocations() { return live.size(); }
+
+    public int largestFree() {
+        int largest = 0;
+        for (int s : free.values()) largest = Math.max(largest, s);
+        return largest;
+    }
+
+    // Internal consistency check: ranges tile the arena exactly, free ranges never touch
+    public void validate() {
+        int offset = 0, usedSum = 0;
+        Iterator<Map.Entry<Integer, Integer>> f = free.entrySet().iterator();
+        Iterator<Allocation> l = live.values().iterator();
+        Map.Entry<Integer, Integer> nextFree = f.hasNext() ? f.next() : null;
+        Allocation nextLive = l.hasNext() ? l.next() : null;
+        boolean lastWasFree = false;
+        while (nextFree != null || nextLive != null) {
+            if (nextFree != null && nextFree.getKey() == offset) {
+                if (lastWasFree) throw new IllegalStateException("Unmerged free ranges at " + offset);
+                offset += nextFree.getValue();
+                nextFree = f.hasNext() ? f.next() : null;
+                lastWasFree = true;
+            } else if (nextLive != null && nextLive.offset == offset) {
+                offset += nextLive.size;
+                usedSum += nextLive.size;
+                nextLive = l.hasNext() ? l.next() : null;
+                lastWasFree = false;
+            } else {
+                throw new IllegalStateException("Gap or overlap at " + offset);
+            }
+        }
+        if (offset != capacity || usedSum != used) throw new IllegalStateException("Arena covers " + offset + " of " + capacity);
+    }
+}
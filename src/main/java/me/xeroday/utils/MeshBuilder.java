@@ -1,34 +1,131 @@
 package me.xeroday.utils;
 
 import org.lwjgl.system.MemoryUtil;
-import java.nio.FloatBuffer;
-import java.util.Arrays;
+import java.nio.IntBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Growable int array in native memory (MemoryUtil, grown with memRealloc), so a mesh is written
+ * once by the mesh thread and copied straight from here into the GPU staging buffer.
+ *
+ * Builders come from acquire() and go back with release() once their data is no longer needed,
+ * from any thread. Each platform thread has its own pool (mesh workers call freeThreadPool() when
+ * they stop), virtual threads share one. A pool keeps up to POOL_SIZE builders of at most
+ * MAX_POOLED_INTS, anything beyond that is freed on release.
+ */
 public class MeshBuilder {
-    private float[] data;
-    private int size;
+    private static final int POOL_SIZE = 16;
+    private static final int MAX_POOLED_INTS = 1 << 20;
+    private static final ThreadLocal<Pool> LOCAL = ThreadLocal.withInitial(Pool::new);
+    private static final Pool SHARED = new Pool();
+
+    private IntBuffer data;
+    private long address;
+    private int capacity, size;
+    private final Pool pool; // null = freed on release
+
+    private static class Pool {
+        final Queue<MeshBuilder> free = new ConcurrentLinkedQueue<>();
+        final AtomicInteger count = new AtomicInteger();
+        volatile boolean closed;
+
+        void drain() {
+            for (MeshBuilder b; (b = free.poll()) != null; ) {
+                count.decrementAndGet();
+                b.free();
+            }
+        }
+    }
 
     public MeshBuilder(int initialCapacity) {
-        this.data = new float[initialCapacity];
-        this.size = 0;
+        this(initialCapacity, null);
+    }
+
+    private MeshBuilder(int initialCapacity, Pool pool) {
+        this.pool = pool;
+        this.capacity = Math.max(2, initialCapacity);
+        this.data = MemoryUtil.memAllocInt(capacity);
+        this.address = MemoryUtil.memAddress(data);
+    }
+
+    // An empty builder from the calling thread's pool, initialCapacity is only used for a new one
+    public static MeshBuilder acquire(int initialCapacity) {
+        Pool pool = Thread.currentThread().isVirtual() ? SHARED : LOCAL.get();
+        MeshBuilder b = pool.free.poll();
+        if (b == null) return new MeshBuilder(initialCapacity, pool);
+        pool.count.decrementAndGet();
+        b.size = 0;
+        return b;
     }
 
-    public void add(float value) {
-        if (size == data.length) {
-            int newCapacity = data.length * 2;
-            data = Arrays.copyOf(data, newCapacity);
+    // Back to the pool it came from, or freed. The builder must not be used afterwards
+    public void release() {
+        Pool p = pool;
+        if (p != null && !p.closed && capacity <= MAX_POOLED_INTS) {
+            if (p.count.incrementAndGet() <= POOL_SIZE) {
+                p.free.add(this);
+                if (p.closed) p.drain(); // closed meanwhile
+                return;
+            }
+            p.count.decrementAndGet();
         }
-        data[size++] = value;
+        free();
+    }
+
+    // Frees the calling thread's pool; builders still out are freed when they are released
+    public static void freeThreadPool() {
+        Pool p = LOCAL.get();
+        p.closed = true;
+        p.drain();
+        LOCAL.remove();
+    }
+
+    private void free() {
+        if (data == null) return;
+        MemoryUtil.memFree(data);
+        data = null;
+        address = 0;
+        capacity = size = 0;
+    }
+
+    private void grow(int needed) {
+        capacity = Math.max(capacity * 2, needed);
+        data = MemoryUtil.memRealloc(data, capacity);
+        address = MemoryUtil.memAddress(data);
+    }
+
+    public void add(int value) {
+        if (size == capacity) grow(size + 1);
+        MemoryUtil.memPutInt(address + ((long) size++ << 2), value);
+    }
+
+    // One packed vertex is two ints
+    public void addVertex(int a, int b) {
+        if (size + 2 > capacity) grow(size + 2);
+        long p = address + ((long) size << 2);
+        MemoryUtil.memPutInt(p, a);
+        MemoryUtil.memPutInt(p + 4, b);
+        size += 2;
+    }
+
+    // Room for ints values without growing, the contents are kept
+    public void ensureCapacity(int ints) {
+        if (ints > capacity) grow(ints);
     }
 
+    // Copies count ints from index from to index to of other, which must already have the room
+    public void copyTo(int from, MeshBuilder other, int to, int count) {
+        MemoryUtil.memCopy(address + ((long) from << 2), other.address + ((long) to << 2), (long) count << 2);
+    }
+
+    public int get(int index) { return MemoryUtil.memGetInt(address + ((long) index << 2)); }
+    public void set(int index, int value) { MemoryUtil.memPutInt(address + ((long) index << 2), value); }
     public boolean isEmpty() { return size == 0; }
     public int size() { return size; }
+    public long address() { return address; } // native memory, valid up to size() ints until the next add or release
 
-    public FloatBuffer toBuffer() {
-        if (size == 0) return null;
-        FloatBuffer buffer = MemoryUtil.memAllocFloat(size);
-        buffer.put(data, 0, size);
-        buffer.flip();
-        return buffer;
-    }
-}
\ No newline at end of file
+    // View of the first size() ints, valid like address()
+    public IntBuffer buffer() { return MemoryUtil.memIntBuffer(address, size); }
+}
@@ -0,0 +1,55 @@
+package me.xeroday.utils;
+
+import java.util.ArrayDeque;
+
+/**
+ * Space bookkeeping for a buffer used as a ring whose writes are released in groups (StagingRing
+ * fences once a frame). No GL here: alloc hands out offsets, fence() closes the group of everything
+ * allocated since the last fence, and the owner calls retireOldest() once the oldest group is no
+ * longer read.
+ *
+ * An allocation never wraps around the end: if it doesn't fit before the end the tail is skipped,
+ * and the skipped bytes are held by the current group like any other allocation.
+ */
+public class RingAllocator {
+    private final int capacity;
+    private int head, used, unfenced;
+    private final ArrayDeque<Integer> groups = new ArrayDeque<>(); // size of each fenced group, oldest first
+
+    public RingAllocator(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity " + capacity);
+        this.capacity = capacity;
+    }
+
+    // Offset of size free units, or -1 while the space is still held (fence and retire, then retry)
+    public int alloc(int size) {
+        if (size <= 0 || size > capacity) throw new IllegalArgumentException("size " + size);
+        if (used == 0) head = 0;
+        boolean wrap = head + size > capacity;
+        int waste = wrap ? capacity - head : 0; // the tail end is skipped on wrap
+        if (used + waste + size > capacity) return -1;
+        if (wrap) { used += waste; unfenced += waste; head = 0; }
+
+        int offset = head;
+        head += size; used += size; unfenced += size;
+        return offset;
+    }
+
+    // Closes the group of everything allocated since the last fence
+    public void fence() {
+        groups.add(unfenced);
+        unfenced = 0;
+    }
+
+    // Frees the oldest fenced group
+    public void retireOldest() {
+        Integer size = groups.poll();
+        if (size == null) throw new IllegalStateException("No fenced group");
+        used -= size;
+    }
+
+    public boolean hasUnfenced() { return unfenced > 0; }
+    public int fences() { return groups.size(); }
+    public int used() { return used; }
+    public int capacity() { return capacity; }
+}
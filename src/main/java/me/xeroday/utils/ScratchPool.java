@@ -0,0 +1,44 @@
+package me.xeroday.utils;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Reusable scratch objects (arrays) for hot loops that may run on any thread.
+ *
+ * Platform threads keep one per thread in a ThreadLocal. A virtual thread usually runs a single
+ * task, so a ThreadLocal would allocate a new scratch every time; virtual threads borrow from a
+ * shared queue instead, which keeps up to maxShared spares (like MeshBuilder's shared pool).
+ * get() and release() must be called on the same thread; a scratch that is never given back is
+ * simply garbage collected.
+ */
+public class ScratchPool<T> {
+    private final Supplier<T> factory;
+    private final ThreadLocal<T> local;
+    private final Queue<T> shared = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger sharedCount = new AtomicInteger();
+    private final int maxShared;
+
+    public ScratchPool(Supplier<T> factory, int maxShared) {
+        this.factory = factory;
+        this.local = ThreadLocal.withInitial(factory);
+        this.maxShared = maxShared;
+    }
+
+    public T get() {
+        if (!Thread.currentThread().isVirtual()) return local.get();
+        T scratch = shared.poll();
+        if (scratch == null) return factory.get();
+        sharedCount.decrementAndGet();
+        return scratch;
+    }
+
+    // Done with it, the contents are left as they are
+    public void release(T scratch) {
+        if (!Thread.currentThread().isVirtual()) return;
+        if (sharedCount.incrementAndGet() <= maxShared) shared.add(scratch);
+        else sharedCount.decrementAndGet();
+    }
+}
@@ -1,5 +1,8 @@
 package me.xeroday.world;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class Block {
     public static Block[] blocks = new Block[256];
 
@@ -13,6 +16,9 @@ public class Block {
     public static final int TINT_ALL  = 1; // Tint all 6 sides (Leaves, Water)
     public static final int TINT_TOP  = 2; // Tint ONLY the top face (Grass Block)
 
+    // Distinct tint colours, referenced by index from packed vertices (0 is always C_DEFAULT via AIR)
+    private static final List<float[]> TINTS = new ArrayList<>();
+
     // BLOCKS from here
     public static Block AIR    = new Block(0, 0, 0, 0, C_DEFAULT, TINT_NONE, false, false);
 
@@ -42,6 +48,7 @@ public class Block {
     public final int top, bot, side;
     public final float r, g, b;
     public final int tintType;
+    public final int tintIndex;
     public final boolean opaque;
     public final boolean isPlant;
 
@@ -50,10 +57,20 @@ public class Block {
         this.top = top; this.bot = bot; this.side = side;
         this.r = color[0]; this.g = color[1]; this.b = color[2];
         this.tintType = tintType;
+        this.tintIndex = registerTint(color);
         this.opaque = opaque;
         this.isPlant = isPlant;
         blocks[id] = this;
     }
 
     public static Block get(byte id) { return blocks[id] != null ? blocks[id] : AIR; }
+
+    public static int tintCount() { return TINTS.size(); }
+    public static float[] getTint(int index) { return TINTS.get(index); }
+
+    private static int registerTint(float[] color) {
+        for (int i = 0; i < TINTS.size(); i++) if (TINTS.get(i) == color) return i;
+        TINTS.add(color);
+        return TINTS.size() - 1;
+    }
 }
\ No newline at end of file
@@ -3,30 +3,65 @@ package me.xeroday.world;
 import me.xeroday.utils.MathUtils;
 import me.xeroday.utils.MeshBuilder;
 import me.xeroday.utils.PerlinNoise;
-import org.lwjgl.system.MemoryUtil;
+import me.xeroday.utils.ScratchPool;
 
-import java.nio.FloatBuffer;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Random;
-
-import static org.lwjgl.opengl.GL33.*;
+import java.util.stream.IntStream;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Chunk {
-    public static int CHUNKS_PER_FRAME = 16;
-    public static int chunksLoadedCount = 0;
-    public static void nextFrame() { chunksLoadedCount = 0; }
+    // Merge coplanar solid/water faces into larger quads (-Dxylo.greedy=false for the per-face mesher)
+    public static boolean GREEDY_MESHING = Boolean.parseBoolean(System.getProperty("xylo.greedy", "true"));
+
+    // Sample the density/cave noise on a coarse lattice and interpolate in between (-Dxylo.lerpTerrain=true).
+    // Faster, but not block-identical to the exact per-voxel path.
+    public static boolean LERP_TERRAIN = Boolean.parseBoolean(System.getProperty("xylo.lerpTerrain", "false"));
 
     // CHUNK, WORLD HEIGHT, WATER LVL
     public static final int SIZE = 16;
     public static final int MIN_Y = -64;
     public static final int MAX_Y = 320;
-    private static final int SEA_LEVEL = 70;
-
-    private final byte[][][] blocks = new byte[SIZE][MAX_Y - MIN_Y][SIZE];
+    static final int SEA_LEVEL = 70;
+
+    // 16-high sections, null means the whole section is air
+    static final int SECTION_COUNT = (MAX_Y - MIN_Y) / ChunkSection.SIZE;
+    private final ChunkSection[] sections = new ChunkSection[SECTION_COUNT];
+
+    // FLAT LAYOUT
+    // Generation and meshing work on a flat y-major byte[] (see index()) so every section is one
+    // contiguous 4096 byte range and the hot loops index it without bounds checks or section
+    // lookups. The public getB/setB stay checked. The scratch arrays are per worker thread, virtual
+    // threads share a few (at most one per CPU permit of the virtual pipeline is in use).
+    private static final int VOLUME = SIZE * SIZE * (MAX_Y - MIN_Y);
+    private static final ScratchPool<byte[]> GEN_SCRATCH = new ScratchPool<>(() -> new byte[VOLUME], ChunkScheduler.DEFAULT_THREADS);
+    private static final ForkJoinPool COLUMN_POOL = new ForkJoinPool(ChunkScheduler.DEFAULT_THREADS);
+    private static final ScratchPool<byte[]> MESH_SCRATCH = new ScratchPool<>(() -> new byte[VOLUME], ChunkScheduler.DEFAULT_THREADS);
+    private static final ScratchPool<byte[]> FACE_SCRATCH = new ScratchPool<>(() -> new byte[VOLUME], ChunkScheduler.DEFAULT_THREADS);
+    private static final ScratchPool<int[]> MASK_SCRATCH = new ScratchPool<>(() -> new int[SIZE * (MAX_Y - MIN_Y)], ChunkScheduler.DEFAULT_THREADS);
+    private byte[] genBlocks; // only set while fill runs
     public final int cx, cz;
 
+    // HEIGHTMAPS & BIOMES
+    // Per column (index (z << 4) | x): highest y of each kind, MIN_Y - 1 when there is none.
+    // Built once after the terrain fill and kept current by setB, so lookups never scan.
+    public static final int HEIGHT_ANY = 0, HEIGHT_OPAQUE = 1, HEIGHT_NO_WATER = 2;
+    private final short[][] heightmaps = new short[3][SIZE * SIZE];
+    private final byte[] biomes = new byte[SIZE * SIZE]; // terrain biome ordinal, same as World.getBiomeAt
+    private static final Biome[] BIOMES = Biome.values();
+
     public boolean dirty = true;
     public void markDirty() { this.dirty = true; }
 
+    // Generated or edited since it was last written to disk (see ChunkStorage)
+    public volatile boolean unsaved = true;
+    private static final int SAVE_VERSION = 1;
+
     // NOISE SCALES
     private static final float SCALE_TEMP = 0.0012f;
     private static final float SCALE_HUMIDITY = 0.0012f;
@@ -34,161 +69,334 @@ public class Chunk {
     private static final float SCALE_EROSION = 0.002f;
     private static final float SCALE_NOISE_3D = 0.006f;
 
-    // OpenGL handles
-    private int vaoSolid, vboSolid, countSolid;
-    private int vaoWater, vboWater, countWater;
-    private int vaoShortGrass, vboShortGrass, countShortGrass;
-    private int vaoTallGrass, vboTallGrass, countTallGrass;
-    private MeshBuilder pendingSolids, pendingWater, pendingShortGrass, pendingTallGrass;
-    private volatile boolean hasMeshToUpload = false;
+    // COLUMN EARLY-OUT
+    // The 3D fbm can't exceed the largest gradient blend of one Perlin cell in magnitude (~1.036, every corner gradient
+    // picked to point away from the sample), so where verticalBias alone clears the solid/paint or air
+    // thresholds by more than that the block is decided without evaluating the density noise.
+    private static final float NOISE_3D_BOUND = 1.1f;
+    private static final float CERTAIN_SOLID = 0.45f + NOISE_3D_BOUND; // above the paint threshold too
+    private static final float CERTAIN_AIR = -0.25f - NOISE_3D_BOUND;
+    static boolean COLUMN_EARLY_OUT = true; // off = density noise for every y, tests compare the two
+
+    // DENSITY LATTICE (LERP_TERRAIN)
+    // Cell size in blocks; lattice points sit on the chunk edges too so neighbours line up
+    private static final int LERP_XZ = 4, LERP_Y = 8;
+    private static final int LATTICE_XZ = SIZE / LERP_XZ + 1;
+    private static final int LATTICE_Y = (MAX_Y - MIN_Y) / LERP_Y + 1;
+
+    // Built mesh waiting for the render thread, which owns the GL side (ChunkMesh, null until the first upload)
+    ChunkMesh mesh;
+    private BuiltMesh pendingMesh;
+    private final AtomicBoolean uploadQueued = new AtomicBoolean(); // in the world's ChunkUploadQueue
+
+    // REMESH BOOKKEEPING (World.requestMesh)
+    // Every request bumps meshVersion; a mesh built from an older version than the one already
+    // published is dropped, so overlapping jobs can't replace a newer mesh with a stale one.
+    private final AtomicInteger meshVersion = new AtomicInteger();
+    private final AtomicBoolean meshQueued = new AtomicBoolean();
+    private int publishedVersion = -1;
+    private boolean unloaded; // set by dropPendingMesh, later meshes are released right away
+
+    // One remesh: the vertices of every render pass (solids, water, short grass, tall grass) ordered
+    // by section, where each section starts in each pass, and the section visibility graph
+    static class BuiltMesh {
+        final MeshBuilder[] passes;
+        final int[][] sectionStarts;
+        final long[] visibility = new long[SECTION_COUNT];
+        BuiltMesh(MeshBuilder[] passes) { this.passes = passes; this.sectionStarts = new int[passes.length][]; }
+        // once uploaded or dropped
+        void release() { for (MeshBuilder b : passes) b.release(); }
+    }
 
-    public Chunk(int cx, int cz, PerlinNoise noise) {
-        this.cx = cx; this.cz = cz;
+    public static Chunk generate(int cx, int cz, PerlinNoise noise) {
+        return generate(cx, cz, noise, false);
+    }
+
+    // parallelColumns splits the terrain fill over COLUMN_POOL, the result is identical. A factory
+    // rather than a constructor, since vegetation is placed through the chunk's own setB
+    public static Chunk generate(int cx, int cz, PerlinNoise noise, boolean parallelColumns) {
+        Chunk c = new Chunk(cx, cz);
+        c.fill(noise, parallelColumns);
+        return c;
+    }
+
+    private void fill(PerlinNoise noise, boolean parallelColumns) {
         Random r = new Random(getSeed(cx, cz));
+        final byte[] blocks = GEN_SCRATCH.get();
+        Arrays.fill(blocks, (byte) 0);
+        this.genBlocks = blocks;
+
+        // TERRAIN
+        // Columns only write their own blocks, so rows of 16 columns can be filled in parallel
+        final float[][] lattice = LERP_TERRAIN ? sampleLattice(cx, cz, noise) : null;
+        final byte[] vegetationBiomes = new byte[SIZE * SIZE];
+        if (parallelColumns) {
+            COLUMN_POOL.submit(() -> IntStream.range(0, SIZE).parallel().forEach(x -> fillRow(x, noise, blocks, lattice, vegetationBiomes))).join();
+        } else {
+            for (int x = 0; x < SIZE; x++) fillRow(x, noise, blocks, lattice, vegetationBiomes);
+        }
 
+        computeHeightmaps(blocks);
+
+        // VEGETATION
         for (int x = 0; x < SIZE; x++) {
             for (int z = 0; z < SIZE; z++) {
-                int wx = cx * SIZE + x;
-                int wz = cz * SIZE + z;
-
-                // CONTINENT/BIOME SHAPES
-                // using 3 octaves breaks the "straight line" artifacts
-                float continent = noise.getFBM(wx, wz, SCALE_CONTINENT, 3);
-
-                // MOUNTAIN HEIGHTS
-                float pv = (float) noise.getNoise(wx * 0.004, 0, wz * 0.004);
-
-                // EROSION/DETAIL
-                float erosion = noise.getFBM(wx + 2000, wz + 2000, SCALE_EROSION, 2);
-                float temp = noise.getFBM(wx + 5000, wz + 5000, SCALE_TEMP, 2);
-                float humidity = noise.getFBM(wx + 1000, wz + 1000, SCALE_HUMIDITY, 2);
-
-                // Calculate Biome & Height
-                Biome biome = Biome.getBiome(continent, temp, humidity);
-                float targetHeight = getSmoothHeight(continent, erosion, pv);
-
-                // FILL COLUMN
-                for (int y = MIN_Y; y < MAX_Y; y++) {
-                    // vertical domain warp
-                    double yWarp = noise.getNoise(wx * 0.02, y * 0.02, wz * 0.02) * 3.0; // reduced amplitude
-                    float noise3D = fbm3D(wx, y + yWarp, wz, SCALE_NOISE_3D, 4, 0.5f, 2.0f, noise);
-
-                    // vertical bias pushes surfaces to targetHeight smoothly
-                    float distFromSurface = targetHeight - y;
-                    float verticalBias = distFromSurface / 60.0f;
-                    if (y < -50) verticalBias += 5.0f;
-                    if (y > 200) verticalBias -= 5.0f;
-
-                    // combined density (backbone)
-                    float density = noise3D + verticalBias;
-
-                    // Hard/soft band thresholds
-                    final float HARD_SOLID = 0.25f; // definitely solid above this
-                    final float HARD_AIR   = -0.25f; // definitely air below this
-
-                    byte blockId = 0;
-
-                    // 1. DENSITY CALCULATION
-                    if (density > HARD_SOLID) {
-                        blockId = Block.STONE.id;
-                    } else if (density < HARD_AIR) {
-                        if (y <= SEA_LEVEL) blockId = Block.WATER.id;
-                        else blockId = 0;
-                    } else {
-                        // Interpolate surface zone
-                        float t = MathUtils.inverseLerp(HARD_AIR, HARD_SOLID, density);
-                        t = MathUtils.smootherStep(t);
-
-                        float micro = (float) noise.getNoise(wx * 0.12, y * 0.35, wz * 0.12) * 0.15f;
-                        t += micro;
-
-                        if (t > 0.5f) blockId = Block.STONE.id;
-                        else if (y <= SEA_LEVEL) blockId = Block.WATER.id;
-                    }
+                int surfY = heightmaps[HEIGHT_NO_WATER][(z << 4) | x];
+                if (surfY <= SEA_LEVEL || surfY >= MAX_Y - 10) continue;
 
-                    // 2. CAVES & DEEPSLATE
-                    if (blockId == Block.STONE.id) {
-                        if (isCave(wx, y, wz, noise)) {
-                            blockId = (y < -54) ? Block.LAVA.id : 0;
-                        } else if (y < -50) {
-                            float ds = MathUtils.inverseLerp(-40.0f, -8.0f, y);
-                            ds += (float) noise.getNoise(wx * 0.02, y * 0.05, wz * 0.02) * 0.12f;
-                            if (ds < 0.35f) blockId = Block.DEEPSLATE.id;
-                        }
+                // Trees reach into the neighbouring columns and share r, so this part stays in order
+                Biome biome = BIOMES[vegetationBiomes[(z << 4) | x]];
+                byte ground = blocks[index(x, surfY, z)];
+
+                if (ground == biome.topBlock.id) {
+                    biome.generateVegetation(x, surfY, z, r, this);
+                }
+            }
+        }
+
+        for (int i = 0; i < SECTION_COUNT; i++) sections[i] = ChunkSection.pack(blocks, i * ChunkSection.VOLUME);
+        this.genBlocks = null;
+        GEN_SCRATCH.release(blocks);
+    }
+
+    // Terrain for the 16 columns at x, plus the biome lookup vegetation uses for each of them
+    private void fillRow(int x, PerlinNoise noise, byte[] blocks, float[][] lattice, byte[] vegetationBiomes) {
+        // per-column noise, sampled in one batch before the y loop
+        final int height = MAX_Y - MIN_Y;
+        final double[] colY = new double[height], warpedY = new double[height];
+        final double[] scratchY = new double[height], scratchN = new double[height];
+        final float[] column3D = new float[height];
+
+        final boolean lerp = lattice != null;
+        final float[] caveA = lerp ? new float[height] : null, caveB = lerp ? new float[height] : null;
+        final float[] shape = new float[2];
+
+        for (int z = 0; z < SIZE; z++) {
+            int wx = cx * SIZE + x;
+            int wz = cz * SIZE + z;
+
+            // Calculate Biome & Height
+            sampleColumn(noise, wx, wz, shape);
+            float targetHeight = shape[0];
+            Biome biome = BIOMES[(int) shape[1]];
+            biomes[(z << 4) | x] = (byte) biome.ordinal();
+
+            // vegetation has its own single octave biome lookup
+            float vegContinent = (float) noise.getNoise(wx * SCALE_CONTINENT, wz * SCALE_CONTINENT);
+            float vegTemp = (float) noise.getNoise(wx * SCALE_TEMP + 5000, wz * SCALE_TEMP + 5000);
+            float vegHumidity = (float) noise.getNoise(wx * SCALE_HUMIDITY + 1000, wz * SCALE_HUMIDITY + 1000);
+            vegetationBiomes[(z << 4) | x] = (byte) Biome.getBiome(vegContinent, vegTemp, vegHumidity).ordinal();
+
+            // only noiseMinY..noiseMaxY can go either way, outside it noise3D is taken as 0
+            int noiseMinY = MIN_Y, noiseMaxY = MAX_Y - 1;
+            if (COLUMN_EARLY_OUT) {
+                while (noiseMinY <= noiseMaxY && getVerticalBias(targetHeight, noiseMinY) > CERTAIN_SOLID) noiseMinY++;
+                while (noiseMaxY >= noiseMinY && getVerticalBias(targetHeight, noiseMaxY) < CERTAIN_AIR) noiseMaxY--;
+            }
+            int noiseCount = noiseMaxY - noiseMinY + 1;
+            int columnBase;
+
+            if (lerp) {
+                interpolateColumn(lattice[0], x, z, column3D);
+                interpolateColumn(lattice[1], x, z, caveA);
+                interpolateColumn(lattice[2], x, z, caveB);
+                columnBase = MIN_Y;
+            } else {
+                // vertical domain warp
+                for (int i = 0; i < noiseCount; i++) colY[i] = (noiseMinY + i) * 0.02;
+                noise.getNoise(wx * 0.02, colY, wz * 0.02, scratchN, noiseCount);
+                for (int i = 0; i < noiseCount; i++) warpedY[i] = (noiseMinY + i) + scratchN[i] * 3.0; // reduced amplitude
+                fbm3DColumn(wx, warpedY, wz, SCALE_NOISE_3D, 4, 0.5f, 2.0f, noise, scratchY, scratchN, column3D, noiseCount);
+                columnBase = noiseMinY;
+            }
+
+            // FILL COLUMN
+            for (int y = MIN_Y; y < MAX_Y; y++) {
+                float noise3D = (y >= noiseMinY && y <= noiseMaxY) ? column3D[y - columnBase] : 0;
+
+                // vertical bias pushes surfaces to targetHeight smoothly
+                float verticalBias = getVerticalBias(targetHeight, y);
+
+                // combined density (backbone)
+                float density = noise3D + verticalBias;
+
+                // Hard/soft band thresholds
+                final float HARD_SOLID = 0.25f; // definitely solid above this
+                final float HARD_AIR   = -0.25f; // definitely air below this
+
+                byte blockId = 0;
+
+                // 1. DENSITY CALCULATION
+                if (density > HARD_SOLID) {
+                    blockId = Block.STONE.id;
+                } else if (density < HARD_AIR) {
+                    if (y <= SEA_LEVEL) blockId = Block.WATER.id;
+                    else blockId = 0;
+                } else {
+                    // Interpolate surface zone
+                    float t = MathUtils.inverseLerp(HARD_AIR, HARD_SOLID, density);
+                    t = MathUtils.smootherStep(t);
+
+                    float micro = (float) noise.getNoise(wx * 0.12, y * 0.35, wz * 0.12) * 0.15f;
+                    t += micro;
+
+                    if (t > 0.5f) blockId = Block.STONE.id;
+                    else if (y <= SEA_LEVEL) blockId = Block.WATER.id;
+                }
+
+                // 2. CAVES & DEEPSLATE
+                if (blockId == Block.STONE.id) {
+                    boolean cave = lerp ? isCave(caveA[y - MIN_Y], caveB[y - MIN_Y]) : isCave(wx, y, wz, noise);
+                    if (cave) {
+                        blockId = (y < -54) ? Block.LAVA.id : 0;
+                    } else if (y < -50) {
+                        float ds = MathUtils.inverseLerp(-40.0f, -8.0f, y);
+                        ds += (float) noise.getNoise(wx * 0.02, y * 0.05, wz * 0.02) * 0.12f;
+                        if (ds < 0.35f) blockId = Block.DEEPSLATE.id;
                     }
+                }
 
-                    // 3. SURFACE PAINTING (FIXED LOGIC)
-                    if (blockId == Block.STONE.id) {
-                        // Only paint if we are somewhat near the surface density-wise
-                        // Increased from 0.3 to 0.45 to ensure we catch the surface layer properly
-                        if (density < 0.45f) {
-
-                            // Steepness check:
-                            // Increased threshold from 15 to 28.
-                            // If the 3D noise pushes the terrain 28 blocks higher than the smoothed height, it's a cliff.
-                            boolean steep = (y > targetHeight + 28);
-
-                            // Special Biome handling
-                            if (biome == Biome.MOUNTAINS || biome == Biome.SNOWY_MOUNTAINS) {
-                                // Mountains are naturally stony, but maybe snow on top
-                                if (biome == Biome.SNOWY_MOUNTAINS && y > targetHeight + 10 && !steep) blockId = Block.SNOW.id;
-                                // else remains STONE
-                            }
-                            else if (biome == Biome.DESERT) {
-                                // Desert is always Sand, even on steep dunes usually
-                                blockId = Block.SAND.id;
-                            }
-                            else if (steep) {
-                                // Actual cliff in a grassy biome -> Stone
-                                blockId = Block.STONE.id;
-                            }
-                            else {
-                                // Normal Terrain (Plains, Forest, etc.)
-                                // Ensure we paint down a few blocks from the "air" line
-                                if (y >= targetHeight - 10) {
-                                    // If density is very low (close to air), it's the top block -> Grass
-                                    // If density is slightly higher (deeper), it's filler -> Dirt
-                                    if (density < 0.2f) blockId = biome.topBlock.id;
-                                    else blockId = biome.fillerBlock.id;
-                                }
+                // 3. SURFACE PAINTING (FIXED LOGIC)
+                if (blockId == Block.STONE.id) {
+                    // Only paint if we are somewhat near the surface density-wise
+                    // Increased from 0.3 to 0.45 to ensure we catch the surface layer properly
+                    if (density < 0.45f) {
+
+                        // Steepness check:
+                        // Increased threshold from 15 to 28.
+                        // If the 3D noise pushes the terrain 28 blocks higher than the smoothed height, it's a cliff.
+                        boolean steep = (y > targetHeight + 28);
+
+                        // Special Biome handling
+                        if (biome == Biome.MOUNTAINS || biome == Biome.SNOWY_MOUNTAINS) {
+                            // Mountains are naturally stony, but maybe snow on top
+                            if (biome == Biome.SNOWY_MOUNTAINS && y > targetHeight + 10 && !steep) blockId = Block.SNOW.id;
+                            // else remains STONE
+                        }
+                        else if (biome == Biome.DESERT) {
+                            // Desert is always Sand, even on steep dunes usually
+                            blockId = Block.SAND.id;
+                        }
+                        else if (steep) {
+                            // Actual cliff in a grassy biome -> Stone
+                            blockId = Block.STONE.id;
+                        }
+                        else {
+                            // Normal Terrain (Plains, Forest, etc.)
+                            // Ensure we paint down a few blocks from the "air" line
+                            if (y >= targetHeight - 10) {
+                                // If density is very low (close to air), it's the top block -> Grass
+                                // If density is slightly higher (deeper), it's filler -> Dirt
+                                if (density < 0.2f) blockId = biome.topBlock.id;
+                                else blockId = biome.fillerBlock.id;
                             }
                         }
                     }
-
-                    if (blockId != 0) setB(x, y, z, blockId);
                 }
+
+                blocks[index(x, y, z)] = blockId;
             }
         }
+    }
 
-        // VEGETATION
-        for (int x = 0; x < SIZE; x++) {
-            for (int z = 0; z < SIZE; z++) {
-                int surfY = getHighestBlock(x, z);
-                if (surfY <= SEA_LEVEL || surfY >= MAX_Y - 10) continue;
+    private static float getVerticalBias(float targetHeight, int y) {
+        float distFromSurface = targetHeight - y;
+        float verticalBias = distFromSurface / 60.0f;
+        if (y < -50) verticalBias += 5.0f;
+        if (y > 200) verticalBias -= 5.0f;
+        return verticalBias;
+    }
 
-                int wx = cx * SIZE + x; int wz = cz * SIZE + z;
+    // Shell for generate, readFrom and copy, and empty chunks for benchmarks
+    Chunk(int cx, int cz) {
+        this.cx = cx; this.cz = cz;
+    }
 
-                // Recalculate biome params for vegetation
-                float continent = (float) noise.getNoise(wx * SCALE_CONTINENT, wz * SCALE_CONTINENT);
-                float temp = (float) noise.getNoise(wx * SCALE_TEMP + 5000, wz * SCALE_TEMP + 5000);
-                float humidity = (float) noise.getNoise(wx * SCALE_HUMIDITY + 1000, wz * SCALE_HUMIDITY + 1000);
+    // SAVING
+    // version, column biomes, then each section (absent = all air); heightmaps are rebuilt on load
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeByte(SAVE_VERSION);
+        out.write(biomes);
+        for (ChunkSection section : sections) {
+            out.writeBoolean(section != null);
+            if (section != null) section.write(out);
+        }
+    }
 
-                Biome biome = Biome.getBiome(continent, temp, humidity);
-                byte ground = getB(x, surfY, z);
+    public static Chunk readFrom(int cx, int cz, DataInput in) throws IOException {
+        int version = in.readUnsignedByte();
+        if (version != SAVE_VERSION) throw new IOException("Unsupported chunk version " + version);
+        Chunk c = new Chunk(cx, cz);
+        in.readFully(c.biomes);
+        for (byte biome : c.biomes) if ((biome & 0xFF) >= BIOMES.length) throw new IOException("Bad biome id " + biome);
+        for (int i = 0; i < SECTION_COUNT; i++) c.sections[i] = in.readBoolean() ? ChunkSection.read(in) : null;
+
+        byte[] blocks = GEN_SCRATCH.get();
+        c.copyBlocks(blocks);
+        c.computeHeightmaps(blocks);
+        GEN_SCRATCH.release(blocks);
+        c.unsaved = false;
+        return c;
+    }
 
-                if (ground == biome.topBlock.id) {
-                    biome.generateVegetation(x, surfY, z, r, this);
-                }
+    // Same blocks, biomes and heightmaps with fresh mesh state, for a chunk that is handed out again
+    // after being unloaded (see ChunkStorage.load); still unsaved, as its write may not land
+    Chunk copy() {
+        Chunk c = new Chunk(cx, cz);
+        System.arraycopy(biomes, 0, c.biomes, 0, biomes.length);
+        for (int t = 0; t < heightmaps.length; t++) System.arraycopy(heightmaps[t], 0, c.heightmaps[t], 0, heightmaps[t].length);
+        byte[] blocks = GEN_SCRATCH.get();
+        copyBlocks(blocks);
+        for (int i = 0; i < SECTION_COUNT; i++) c.sections[i] = ChunkSection.pack(blocks, i * ChunkSection.VOLUME);
+        GEN_SCRATCH.release(blocks);
+        return c;
+    }
+
+    // COLUMN SHAPE
+    // Target surface height (out[0]) and terrain biome ordinal (out[1]) of a column before the 3D
+    // noise is added, also sampled by FarTile for distant terrain
+    static void sampleColumn(PerlinNoise noise, int wx, int wz, float[] out) {
+        // CONTINENT/BIOME SHAPES
+        // using 3 octaves breaks the "straight line" artifacts
+        float continent = noise.getFBM(wx, wz, SCALE_CONTINENT, 3);
+
+        // MOUNTAIN HEIGHTS
+        float pv = (float) noise.getNoise(wx * 0.004, 0, wz * 0.004);
+
+        // EROSION/DETAIL
+        float erosion = noise.getFBM(wx + 2000, wz + 2000, SCALE_EROSION, 2);
+        float temp = noise.getFBM(wx + 5000, wz + 5000, SCALE_TEMP, 2);
+        float humidity = noise.getFBM(wx + 1000, wz + 1000, SCALE_HUMIDITY, 2);
+
+        out[0] = getSmoothHeight(continent, erosion, pv);
+        out[1] = Biome.getBiome(continent, temp, humidity).ordinal();
+    }
+
+    // Roughly where the density of a column crosses zero, caves left out: the warped 3D noise moves
+    // the surface off the target height by 60 blocks per unit (getVerticalBias), so iterate
+    // y = target + 60 * noise3D(y) from the target. FarTile uses it for distant terrain
+    static float surfaceHeight(PerlinNoise noise, int wx, int wz, float targetHeight, int iterations) {
+        float y = targetHeight;
+        for (int i = 0; i < iterations; i++) {
+            double warpedY = y + noise.getNoise(wx * 0.02, y * 0.02, wz * 0.02) * 3.0;
+            float freq = SCALE_NOISE_3D, amp = 1, max = 0, sum = 0;
+            for (int o = 0; o < 4; o++) {
+                sum += (float) noise.getNoise(wx * freq, warpedY * freq, wz * freq) * amp;
+                max += amp; amp *= 0.5f; freq *= 2.0f;
             }
+            y = targetHeight + 60.0f * sum / max;
         }
+        return y;
     }
 
+    // Base Height (The Floor)
+    // We keep the floor deep for oceans
+    private static final float[] C_POINTS = { -1.0f, -0.2f, -0.1f, 0.0f, 0.4f, 1.0f };
+    private static final float[] H_POINTS = {  20.0f, 50.0f, 60.0f, 66.0f, 85.0f, 140.0f };
+
     // this helps in smoothing out the area to prevent spiky spiky generation
-    private float getSmoothHeight(float c, float e, float pv) {
-        // Base Height (The Floor)
-        // We keep the floor deep for oceans
-        float[] cPoints = { -1.0f, -0.2f, -0.1f, 0.0f, 0.4f, 1.0f };
-        float[] hPoints = {  20.0f, 50.0f, 60.0f, 66.0f, 85.0f, 140.0f };
+    private static float getSmoothHeight(float c, float e, float pv) {
+        float[] cPoints = C_POINTS, hPoints = H_POINTS;
 
         float baseHeight = 63.0f;
         for (int i = 0; i < cPoints.length - 1; i++) {
@@ -235,49 +443,103 @@ public class Chunk {
         }
     }
 
-    private float getWarpedNoise(double x, double z, float scale, PerlinNoise noise) {
-        double warpScale = scale * 0.3;
-        double warpX = noise.getNoise(x * warpScale, z * warpScale);
-        double warpZ = noise.getNoise(z * warpScale + 500, x * warpScale + 500);
-
-        double distortedX = x * scale + (warpX * 40.0);
-        double distortedZ = z * scale + (warpZ * 40.0);
-
-        return (float) noise.getNoise(distortedX, distortedZ);
-    }
-
-    private float fbm3D(double x, double y, double z, float scale, int octaves, float pers, float lac, PerlinNoise noise) {
-        float total = 0, freq = scale, amp = 1, max = 0;
-        for(int i=0; i<octaves; i++) { total += (float) noise.getNoise(x * freq, y * freq, z * freq) * amp; max += amp; amp *= pers; freq *= lac; }
-        return total / max;
+    // 3D fbm down one column through the batched noise API: out[i] is the sum over the octaves of
+    // getNoise(x * freq, ys[i] * freq, z * freq) * amp, divided by the sum of amp (freq starts at
+    // scale and is multiplied by lac each octave, amp starts at 1 and is multiplied by pers)
+    private static void fbm3DColumn(double x, double[] ys, double z, float scale, int octaves, float pers, float lac, PerlinNoise noise,
+                                    double[] scratchY, double[] scratchN, float[] out, int count) {
+        Arrays.fill(out, 0, count, 0f);
+        float freq = scale, amp = 1, max = 0;
+        for (int o = 0; o < octaves; o++) {
+            for (int i = 0; i < count; i++) scratchY[i] = ys[i] * freq;
+            noise.getNoise(x * freq, scratchY, z * freq, scratchN, count);
+            for (int i = 0; i < count; i++) out[i] += (float) scratchN[i] * amp;
+            max += amp; amp *= pers; freq *= lac;
+        }
+        for (int i = 0; i < count; i++) out[i] /= max;
     }
 
     private boolean isCave(double wx, double wy, double wz, PerlinNoise noise) {
         double n1 = noise.getNoise(wx * 0.02, wy * 0.02, wz * 0.02);
         double n2 = noise.getNoise(wx * 0.02 + 1337, wy * 0.02 + 1337, wz * 0.02 + 1337);
-        return (n1 * n1 + n2 * n2) < 0.003;
-    }
-
-    private float getFBM(double x, double z, float scale, int octaves, PerlinNoise noise) {
-        float total = 0;
-        float frequency = scale;
-        float amplitude = 1f;
-        float maxValue = 0;
-        for(int i=0; i<octaves; i++) {
-            total += (float) noise.getNoise(x * frequency, z * frequency) * amplitude;
-            maxValue += amplitude;
-            amplitude *= 0.5f;
-            frequency *= 2.0f;
+        return isCave(n1, n2);
+    }
+
+    private static boolean isCave(double n1, double n2) { return (n1 * n1 + n2 * n2) < 0.003; }
+
+    // Density (warped 3D fbm) and the two cave noises at every lattice point,
+    // each field laid out as ((lx * LATTICE_XZ) + lz) * LATTICE_Y + ly
+    private static float[][] sampleLattice(int cx, int cz, PerlinNoise noise) {
+        float[][] fields = new float[3][LATTICE_XZ * LATTICE_XZ * LATTICE_Y];
+        double[] ys = new double[LATTICE_Y], warpedY = new double[LATTICE_Y], offsetY = new double[LATTICE_Y];
+        double[] scratchY = new double[LATTICE_Y], scratchN = new double[LATTICE_Y], warp = new double[LATTICE_Y];
+        float[] density = new float[LATTICE_Y];
+        for (int ly = 0; ly < LATTICE_Y; ly++) {
+            ys[ly] = (MIN_Y + ly * LERP_Y) * 0.02;
+            offsetY[ly] = ys[ly] + 1337;
+        }
+
+        for (int lx = 0; lx < LATTICE_XZ; lx++) {
+            for (int lz = 0; lz < LATTICE_XZ; lz++) {
+                int wx = cx * SIZE + lx * LERP_XZ;
+                int wz = cz * SIZE + lz * LERP_XZ;
+                int base = (lx * LATTICE_XZ + lz) * LATTICE_Y;
+
+                // the warp noise doubles as the first cave noise, both sample (x, y, z) * 0.02
+                noise.getNoise(wx * 0.02, ys, wz * 0.02, warp, LATTICE_Y);
+                for (int ly = 0; ly < LATTICE_Y; ly++) warpedY[ly] = (MIN_Y + ly * LERP_Y) + warp[ly] * 3.0;
+                fbm3DColumn(wx, warpedY, wz, SCALE_NOISE_3D, 4, 0.5f, 2.0f, noise, scratchY, scratchN, density, LATTICE_Y);
+                noise.getNoise(wx * 0.02 + 1337, offsetY, wz * 0.02 + 1337, scratchN, LATTICE_Y);
+
+                for (int ly = 0; ly < LATTICE_Y; ly++) {
+                    fields[0][base + ly] = density[ly];
+                    fields[1][base + ly] = (float) warp[ly];
+                    fields[2][base + ly] = (float) scratchN[ly];
+                }
+            }
         }
-        return total / maxValue;
+        return fields;
+    }
+
+    // Trilinear lookup of one lattice field for the whole column at (x, z)
+    private static void interpolateColumn(float[] field, int x, int z, float[] out) {
+        int lx = x / LERP_XZ, lz = z / LERP_XZ;
+        float fx = (x % LERP_XZ) / (float) LERP_XZ, fz = (z % LERP_XZ) / (float) LERP_XZ;
+        int c00 = (lx * LATTICE_XZ + lz) * LATTICE_Y, c01 = c00 + LATTICE_Y;
+        int c10 = c00 + LATTICE_XZ * LATTICE_Y, c11 = c10 + LATTICE_Y;
+
+        float prev = 0;
+        for (int ly = 0; ly < LATTICE_Y; ly++) {
+            float a = MathUtils.lerp(field[c00 + ly], field[c10 + ly], fx);
+            float b = MathUtils.lerp(field[c01 + ly], field[c11 + ly], fx);
+            float v = MathUtils.lerp(a, b, fz);
+            if (ly > 0) {
+                int y0 = (ly - 1) * LERP_Y;
+                for (int k = 0; k < LERP_Y; k++) out[y0 + k] = MathUtils.lerp(prev, v, k / (float) LERP_Y);
+            }
+            prev = v;
+        }
+    }
+
+    // True if the caller has to queue a mesh job, false if one is already waiting to start
+    boolean requestMesh() {
+        meshVersion.incrementAndGet();
+        return meshQueued.compareAndSet(false, true);
     }
 
+    // Called when the queued job starts (or is dropped), later requests need a new job
+    void takeMeshRequest() { meshQueued.set(false); }
+    boolean hasRequestedMesh() { return meshVersion.get() > 0; }
+    synchronized boolean hasMesh() { return publishedVersion >= 0; }
+    synchronized boolean isMeshCurrent() { return publishedVersion == meshVersion.get(); } // built after the last request
+
     public void computeMesh(World world) {
         this.dirty = false;
-        MeshBuilder solids = new MeshBuilder(8192);
-        MeshBuilder water = new MeshBuilder(2048);
-        MeshBuilder sGrass = new MeshBuilder(2048);
-        MeshBuilder tGrass = new MeshBuilder(2048);
+        final int version = meshVersion.get();
+        MeshBuilder solids = MeshBuilder.acquire(8192);
+        MeshBuilder water = MeshBuilder.acquire(2048);
+        MeshBuilder sGrass = MeshBuilder.acquire(2048);
+        MeshBuilder tGrass = MeshBuilder.acquire(2048);
 
         // 3x3 neighbor chunk cache
         final Chunk[][] neighborChunks = new Chunk[3][3];
@@ -287,42 +549,112 @@ public class Chunk {
             }
         }
 
-        for (int x = 0; x < SIZE; x++) {
-            for (int y = MIN_Y; y < MAX_Y; y++) {
-                for (int z = 0; z < SIZE; z++) {
-                    byte id = getB(x, y, z);
+        final byte[] blocks = MESH_SCRATCH.get();
+        copyBlocks(blocks);
+
+        final boolean greedy = GREEDY_MESHING;
+        final byte[] visibleFaces = greedy ? FACE_SCRATCH.get() : null;
+        if (greedy) Arrays.fill(visibleFaces, (byte) 0);
+        int greedyMinY = MAX_Y, greedyMaxY = MIN_Y - 1;
+        int i = 0;
+        for (int y = MIN_Y; y < MAX_Y; y++) {
+            for (int z = 0; z < SIZE; z++) {
+                for (int x = 0; x < SIZE; x++, i++) {
+                    byte id = blocks[i];
                     if (id == 0) continue;
                     Block b = Block.get(id);
 
-                    if (id == Block.WATER.id || id == Block.LAVA.id)
-                        addBlockFaces(water, world, neighborChunks, x, y, z, b);
+                    if (greedy && isGreedyBlock(id)) {
+                        int faces = 0;
+                        for (int f = 0; f < 6; f++) {
+                            int[] d = FACE_DIRS[f];
+                            if (isFaceVisible(blocks, world, neighborChunks, x, y, z, d[0], d[1], d[2], b)) faces |= 1 << f;
+                        }
+                        if (faces != 0) {
+                            visibleFaces[i] = (byte) faces;
+                            greedyMinY = Math.min(greedyMinY, y); greedyMaxY = Math.max(greedyMaxY, y);
+                        }
+                    }
+                    else if (id == Block.WATER.id || id == Block.LAVA.id)
+                        addBlockFaces(water, blocks, world, neighborChunks, x, y, z, b);
                     else if (id == Block.PLANT_GRASS.id)
                         addCross(sGrass, x, y, z, b);
                     else if (id == Block.PLANT_TALL_BOT.id || id == Block.PLANT_TALL_TOP.id)
                         addCross(tGrass, x, y, z, b);
                     else if (id == Block.LEAVES.id)
-                        addBlockFaces(sGrass, world, neighborChunks, x, y, z, b);
+                        addBlockFaces(sGrass, blocks, world, neighborChunks, x, y, z, b);
                     else
-                        addBlockFaces(solids, world, neighborChunks, x, y, z, b);
+                        addBlockFaces(solids, blocks, world, neighborChunks, x, y, z, b);
                 }
             }
         }
+        if (greedy && greedyMinY <= greedyMaxY) addGreedyFaces(solids, water, blocks, visibleFaces, greedyMinY - MIN_Y, greedyMaxY - MIN_Y);
+
+        BuiltMesh built = new BuiltMesh(new MeshBuilder[]{solids, water, sGrass, tGrass});
+        for (int pass = 0; pass < built.passes.length; pass++) built.sectionStarts[pass] = sortBySection(built.passes[pass]);
+        for (int s = 0; s < SECTION_COUNT; s++) {
+            built.visibility[s] = sections[s] == null ? SectionVisibility.ALL : SectionVisibility.compute(blocks, s * ChunkSection.VOLUME);
+        }
+        MESH_SCRATCH.release(blocks);
+        if (greedy) FACE_SCRATCH.release(visibleFaces);
+        BuiltMesh dropped;
         synchronized(this) {
-            this.pendingSolids = solids; this.pendingWater = water;
-            this.pendingShortGrass = sGrass; this.pendingTallGrass = tGrass;
-            this.hasMeshToUpload = true;
+            if (unloaded || version < publishedVersion) {
+                dropped = built;
+            } else {
+                publishedVersion = version;
+                dropped = pendingMesh; // never uploaded
+                this.pendingMesh = built;
+            }
+        }
+        if (dropped != null) dropped.release();
+        if (dropped == built) return;
+        if (uploadQueued.compareAndSet(false, true)) world.queueUpload(this);
+    }
+
+    // Groups the triangles by the section of the block they belong to (a top face sits on the block's
+    // upper edge, so it counts one lower) and returns where each section starts, in vertices
+    private static int[] sortBySection(MeshBuilder mesh) {
+        int ints = mesh.size(), triangles = ints / 6;
+        int[] starts = new int[SECTION_COUNT + 1];
+        if (triangles == 0) return starts;
+        for (int t = 0; t < triangles; t++) starts[sectionOf(mesh, t) + 1] += 3;
+        for (int s = 0; s < SECTION_COUNT; s++) starts[s + 1] += starts[s];
+
+        MeshBuilder sorted = MeshBuilder.acquire(ints);
+        sorted.ensureCapacity(ints);
+        int[] next = Arrays.copyOf(starts, SECTION_COUNT);
+        for (int t = 0; t < triangles; t++) {
+            int s = sectionOf(mesh, t);
+            mesh.copyTo(t * 6, sorted, next[s] * 2, 6);
+            next[s] += 3;
         }
+        sorted.copyTo(0, mesh, 0, ints);
+        sorted.release();
+        return starts;
+    }
+
+    private static int sectionOf(MeshBuilder mesh, int triangle) {
+        int a0 = mesh.get(triangle * 6), a1 = mesh.get(triangle * 6 + 2), a2 = mesh.get(triangle * 6 + 4);
+        int y = Math.min(ChunkVertex.y(a0), Math.min(ChunkVertex.y(a1), ChunkVertex.y(a2)));
+        if (ChunkVertex.face(a0) == 0) y--;
+        return Math.max(0, Math.min(SECTION_COUNT - 1, y >> 4));
     }
 
-    private void checkFace(MeshBuilder verts, World world, Chunk[][] neighborChunks,
+    private void checkFace(MeshBuilder verts, byte[] blocks, World world, Chunk[][] neighborChunks,
                            int x, int y, int z, int dx, int dy, int dz, Block self) {
+        if (isFaceVisible(blocks, world, neighborChunks, x, y, z, dx, dy, dz, self)) addFace(verts, x, y, z, self, dx, dy, dz);
+    }
+
+    private boolean isFaceVisible(byte[] blocks, World world, Chunk[][] neighborChunks,
+                                  int x, int y, int z, int dx, int dy, int dz, Block self) {
         int nx = x + dx; int ny = y + dy; int nz = z + dz;
         byte neighborId = 0;
         final int minY = MIN_Y; final int maxY = MAX_Y;
 
         if ((nx & ~15) == 0 && (nz & ~15) == 0) {
             if (ny >= minY && ny < maxY) {
-                neighborId = blocks[nx][ny - minY][nz];
+                neighborId = blocks[index(nx, ny, nz)];
             }
         } else {
             final int cxOff = (nx >> 4) + 1;
@@ -356,48 +688,240 @@ public class Chunk {
         if ((self.id == Block.WATER.id || self.id == Block.LAVA.id) &&
                 (neighbor.id == Block.WATER.id || neighbor.id == Block.LAVA.id)) render = false;
         if (self.id == Block.LEAVES.id && neighbor.id == Block.LEAVES.id) render = false;
-        if (render) addFace(verts, x, y, z, self, dx, dy, dz);
+        return render;
+    }
+
+    // GREEDY MESHING
+    // computeMesh records which faces of each solid/water block are visible, then every slice is
+    // swept once per face direction: visible faces are keyed by (layer, tint, fluid) and equal
+    // neighbours merged into rectangles. UVs come from the vertex position and the texture array
+    // uses GL_REPEAT, so a merged quad still tiles the texture once per block.
+    private static final int[][] FACE_DIRS = { {0,1,0}, {0,-1,0}, {0,0,1}, {0,0,-1}, {1,0,0}, {-1,0,0} };
+    private static final int[] FACE_NORMAL_AXIS = { 1, 1, 2, 2, 0, 0 };
+    private static final int[][] FACE_UV_AXES = { {0,2}, {0,2}, {0,1}, {0,1}, {2,1}, {2,1} };
+    private static final int KEY_FLUID = 1 << 16;
+    private static final int KEY_PRESENT = 1 << 24;
+
+    private void addGreedyFaces(MeshBuilder solids, MeshBuilder water, byte[] blocks, byte[] visibleFaces, int minY, int maxY) {
+        // y is only swept over the range that actually holds visible faces
+        final int[] lo = { 0, minY, 0 };
+        final int[] hi = { SIZE - 1, maxY, SIZE - 1 };
+        int[] mask = MASK_SCRATCH.get(); // every entry is written before it is read
+        int[] pos = new int[3];
+        int[] size = new int[3];
+
+        for (int face = 0; face < 6; face++) {
+            int n = FACE_NORMAL_AXIS[face];
+            int a = FACE_UV_AXES[face][0];
+            int b = FACE_UV_AXES[face][1];
+            int loA = lo[a], loB = lo[b];
+            int dimA = hi[a] - loA + 1, dimB = hi[b] - loB + 1;
+
+            for (int s = lo[n]; s <= hi[n]; s++) {
+                // 1. BUILD MASK
+                boolean any = false;
+                pos[n] = s;
+                for (int j = 0; j < dimB; j++) {
+                    pos[b] = loB + j;
+                    for (int i = 0; i < dimA; i++) {
+                        pos[a] = loA + i;
+                        int key = 0;
+                        int idx = (pos[1] << 8) | (pos[2] << 4) | pos[0];
+                        if ((visibleFaces[idx] & (1 << face)) != 0) {
+                            key = faceKey(Block.get(blocks[idx]), face);
+                            any = true;
+                        }
+                        mask[j * dimA + i] = key;
+                    }
+                }
+                if (!any) continue;
+
+                // 2. MERGE RECTANGLES
+                for (int j = 0; j < dimB; j++) {
+                    for (int i = 0; i < dimA; ) {
+                        int key = mask[j * dimA + i];
+                        if (key == 0) { i++; continue; }
+
+                        int w = 1;
+                        while (i + w < dimA && mask[j * dimA + i + w] == key) w++;
+
+                        // quads never cross a section boundary in y, each section is drawn on its own
+                        int h = 1;
+                        grow:
+                        while (j + h < dimB && (b != 1 || ((loB + j + h) & 15) != 0)) {
+                            for (int k = 0; k < w; k++) {
+                                if (mask[(j + h) * dimA + i + k] != key) break grow;
+                            }
+                            h++;
+                        }
+
+                        for (int l = 0; l < h; l++) {
+                            for (int k = 0; k < w; k++) mask[(j + l) * dimA + i + k] = 0;
+                        }
+
+                        pos[n] = s; pos[a] = loA + i; pos[b] = loB + j;
+                        size[n] = 1; size[a] = w; size[b] = h;
+                        emitGreedyQuad((key & KEY_FLUID) != 0 ? water : solids, pos, size, key, face);
+                        i += w;
+                    }
+                }
+            }
+        }
+        MASK_SCRATCH.release(mask);
+    }
+
+    private static boolean isGreedyBlock(byte id) {
+        return id != Block.PLANT_GRASS.id && id != Block.PLANT_TALL_BOT.id
+                && id != Block.PLANT_TALL_TOP.id && id != Block.LEAVES.id;
+    }
+
+    // Two faces may merge only if they share texture layer, tint colour and target mesh
+    private static int faceKey(Block b, int face) {
+        int layer = face == 0 ? b.top : (face == 1 ? b.bot : b.side);
+        boolean tinted = b.tintType == Block.TINT_ALL || (b.tintType == Block.TINT_TOP && face == 0);
+        boolean fluid = b.id == Block.WATER.id || b.id == Block.LAVA.id;
+        return KEY_PRESENT | (fluid ? KEY_FLUID : 0) | ((tinted ? b.id & 0xFF : 0) << 8) | (layer & 0xFF);
+    }
+
+    private void emitGreedyQuad(MeshBuilder verts, int[] pos, int[] size, int key, int face) {
+        int layer = key & 0xFF;
+        int tintId = (key >> 8) & 0xFF;
+        int palette = ChunkVertex.paletteIndex(tintId != 0 ? Block.get((byte) tintId).tintIndex : 0, face);
+        emitQuad(verts, pos[0], pos[1], pos[2], size, face, layer, palette);
     }
 
-    private void addBlockFaces(MeshBuilder verts, World world, Chunk[][] neighborChunks,
+    // Writes the two triangles of a face template stretched by size (chunk local, y from MIN_Y)
+    private void emitQuad(MeshBuilder verts, int x, int y, int z, int[] size, int face, int layer, int palette) {
+        int[][] d = FACE_TEMPLATES[face];
+        int b = ChunkVertex.packB(layer, palette);
+        for (int i : QUAD_INDICES) {
+            verts.addVertex(ChunkVertex.packA(x + d[i][0] * size[0], y + d[i][1] * size[1], z + d[i][2] * size[2], face, 0, 0, 0), b);
+        }
+    }
+
+    private void addBlockFaces(MeshBuilder verts, byte[] blocks, World world, Chunk[][] neighborChunks,
                                int x, int y, int z, Block b) {
-        checkFace(verts, world, neighborChunks, x, y, z, 0, 1, 0, b);
-        checkFace(verts, world, neighborChunks, x, y, z, 0, -1, 0, b);
-        checkFace(verts, world, neighborChunks, x, y, z, 1, 0, 0, b);
-        checkFace(verts, world, neighborChunks, x, y, z, -1, 0, 0, b);
-        checkFace(verts, world, neighborChunks, x, y, z, 0, 0, 1, b);
-        checkFace(verts, world, neighborChunks, x, y, z, 0, 0, -1, b);
+        checkFace(verts, blocks, world, neighborChunks, x, y, z, 0, 1, 0, b);
+        checkFace(verts, blocks, world, neighborChunks, x, y, z, 0, -1, 0, b);
+        checkFace(verts, blocks, world, neighborChunks, x, y, z, 1, 0, 0, b);
+        checkFace(verts, blocks, world, neighborChunks, x, y, z, -1, 0, 0, b);
+        checkFace(verts, blocks, world, neighborChunks, x, y, z, 0, 0, 1, b);
+        checkFace(verts, blocks, world, neighborChunks, x, y, z, 0, 0, -1, b);
     }
 
-    private void addCross(MeshBuilder verts, float x, float y, float z, Block b) {
+    private void addCross(MeshBuilder verts, int x, int y, int z, Block b) {
         float wx = cx * SIZE + x; float wz = cz * SIZE + z; float wy = y;
-        float tex = b.side;
-        float r = 1.0f, g = 1.0f, bl = 1.0f;
-        if (b.tintType != Block.TINT_NONE) { r = b.r; g = b.g; bl = b.b; }
+        int palette = ChunkVertex.paletteIndex(b.tintType != Block.TINT_NONE ? b.tintIndex : 0, ChunkVertex.FACE_CROSS);
+        int packedB = ChunkVertex.packB(b.side, palette);
+        // jitter nibbles are turned into a +-0.15 block offset by the vertex shader
         long seed = (long)(wx * 3129871) ^ (long)(wz * 116129781L) ^ (long)(wy);
-        float offX = ((seed & 15) / 15.0f - 0.5f) * 0.3f; float offZ = (((seed >> 4) & 15) / 15.0f - 0.5f) * 0.3f;
-        wx+=offX; wz+=offZ;
-        addV(verts, wx, wy, wz, 0, 1, tex, r, g, bl); addV(verts, wx+1, wy, wz+1, 1, 1, tex, r, g, bl); addV(verts, wx+1, wy+1, wz+1, 1, 0, tex, r, g, bl);
-        addV(verts, wx, wy, wz, 0, 1, tex, r, g, bl); addV(verts, wx+1, wy+1, wz+1, 1, 0, tex, r, g, bl); addV(verts, wx, wy+1, wz, 0, 0, tex, r, g, bl);
-        addV(verts, wx, wy, wz+1, 0, 1, tex, r, g, bl); addV(verts, wx+1, wy, wz, 1, 1, tex, r, g, bl); addV(verts, wx+1, wy+1, wz, 1, 0, tex, r, g, bl);
-        addV(verts, wx, wy, wz+1, 0, 1, tex, r, g, bl); addV(verts, wx+1, wy+1, wz, 1, 0, tex, r, g, bl); addV(verts, wx+1, wy+1, wz+1, 0, 0, tex, r, g, bl);
-    }
-    private void addV(MeshBuilder b, float x, float y, float z, float u, float v, float l, float r, float g, float bl) { b.add(x); b.add(y); b.add(z); b.add(u); b.add(v); b.add(l); b.add(r); b.add(g); b.add(bl); }
-
-    private void uploadMesh() { MeshBuilder s,w,g,t; synchronized(this) { if (!this.hasMeshToUpload) return; s=pendingSolids; w=pendingWater; g=pendingShortGrass; t=pendingTallGrass; hasMeshToUpload=false; pendingSolids=null; pendingWater=null; pendingShortGrass=null; pendingTallGrass=null; } cleanup(); if (s!=null && !s.isEmpty()) uploadBuffer(vaoSolid=glGenVertexArrays(), vboSolid=glGenBuffers(), s, 0); if (w!=null && !w.isEmpty()) uploadBuffer(vaoWater=glGenVertexArrays(), vboWater=glGenBuffers(), w, 1); if (g!=null && !g.isEmpty()) uploadBuffer(vaoShortGrass=glGenVertexArrays(), vboShortGrass=glGenBuffers(), g, 2); if (t!=null && !t.isEmpty()) uploadBuffer(vaoTallGrass=glGenVertexArrays(), vboTallGrass=glGenBuffers(), t, 3); }
-    private void uploadBuffer(int vao, int vbo, MeshBuilder builder, int type) { FloatBuffer b = builder.toBuffer(); glBindVertexArray(vao); glBindBuffer(GL_ARRAY_BUFFER, vbo); glBufferData(GL_ARRAY_BUFFER, b, GL_STATIC_DRAW); int stride = 9 * 4; glVertexAttribPointer(0, 3, GL_FLOAT, false, stride, 0); glEnableVertexAttribArray(0); glVertexAttribPointer(1, 2, GL_FLOAT, false, stride, 3 * 4); glEnableVertexAttribArray(1); glVertexAttribPointer(2, 1, GL_FLOAT, false, stride, 5 * 4); glEnableVertexAttribArray(2); glVertexAttribPointer(3, 3, GL_FLOAT, false, stride, 6 * 4); glEnableVertexAttribArray(3); glBindBuffer(GL_ARRAY_BUFFER, 0); glBindVertexArray(0); int count = builder.size() / 9; if(type==0) countSolid = count; else if(type==1) countWater = count; else if(type==2) countShortGrass = count; else if(type==3) countTallGrass = count; MemoryUtil.memFree(b); }
-
-    public void renderSolids() { if (hasMeshToUpload && chunksLoadedCount < CHUNKS_PER_FRAME) { uploadMesh(); chunksLoadedCount++; } if (countSolid > 0) { glBindVertexArray(vaoSolid); glDrawArrays(GL_TRIANGLES, 0, countSolid); } }
-    public void renderShortGrass() { if (countShortGrass > 0) { glBindVertexArray(vaoShortGrass); glDrawArrays(GL_TRIANGLES, 0, countShortGrass); } }
-    public void renderTallGrass() { if (countTallGrass > 0) { glBindVertexArray(vaoTallGrass); glDrawArrays(GL_TRIANGLES, 0, countTallGrass); } }
-    public void renderWater() { if (countWater > 0) { glBindVertexArray(vaoWater); glDrawArrays(GL_TRIANGLES, 0, countWater); } }
-
-    public void cleanup() { glDeleteVertexArrays(vaoSolid); glDeleteBuffers(vboSolid); glDeleteVertexArrays(vaoWater); glDeleteBuffers(vboWater); glDeleteVertexArrays(vaoShortGrass); glDeleteBuffers(vboShortGrass); glDeleteVertexArrays(vaoTallGrass); glDeleteBuffers(vboTallGrass); vaoSolid=0; vboSolid=0; vaoWater=0; vboWater=0; countSolid=0; countWater=0; }
-    public void setB(int x, int y, int z, byte id) { if (x >= 0 && x < SIZE && z >= 0 && z < SIZE && y >= MIN_Y && y < MAX_Y) blocks[x][y - MIN_Y][z] = id; }
-    public byte getB(int x, int y, int z) { if (y < MIN_Y || y >= MAX_Y) return 0; return blocks[x][y - MIN_Y][z]; }
+        int jx = (int) (seed & 15); int jz = (int) ((seed >> 4) & 15);
+        int ly = y - MIN_Y;
+        for (int[] c : CROSS_TEMPLATE) {
+            verts.addVertex(ChunkVertex.packA(x + c[0], ly + c[1], z + c[2], ChunkVertex.FACE_CROSS, c[3] | c[4] << 1, jx, jz), packedB);
+        }
+    }
+
+    void clearUploadQueued() { uploadQueued.set(false); }
+
+    synchronized int pendingMeshBytes() {
+        if (pendingMesh == null) return 0;
+        int ints = 0;
+        for (MeshBuilder b : pendingMesh.passes) ints += b.size();
+        return ints * 4;
+    }
+
+    // Newest built mesh, or null if it was already taken
+    synchronized BuiltMesh takePendingMesh() {
+        BuiltMesh pending = pendingMesh;
+        pendingMesh = null;
+        return pending;
+    }
+
+    // Frees the GL buffers and a mesh still waiting for upload, render thread only
+    public void cleanup() {
+        if (mesh != null) { mesh.cleanup(); mesh = null; }
+        dropPendingMesh();
+    }
+
+    // Frees the mesh waiting for upload, and any built after this, any thread
+    void dropPendingMesh() {
+        BuiltMesh pending;
+        synchronized (this) {
+            unloaded = true;
+            pending = pendingMesh;
+            pendingMesh = null;
+        }
+        if (pending != null) pending.release();
+    }
+    public void setB(int x, int y, int z, byte id) {
+        if (x < 0 || x >= SIZE || z < 0 || z >= SIZE || y < MIN_Y || y >= MAX_Y) return;
+        if (genBlocks != null) {
+            genBlocks[index(x, y, z)] = id;
+        } else {
+            int ly = y - MIN_Y;
+            ChunkSection section = sections[ly >> 4];
+            if (section == null) {
+                if (id == 0) return;
+                section = sections[ly >> 4] = new ChunkSection((byte) 0);
+            }
+            section.set(ChunkSection.index(x, ly & 15, z), id);
+            unsaved = true;
+        }
+        updateHeightmaps(x, y, z, id);
+    }
+    public byte getB(int x, int y, int z) {
+        if (y < MIN_Y || y >= MAX_Y) return 0;
+        if (genBlocks != null) return genBlocks[index(x, y, z)];
+        int ly = y - MIN_Y;
+        ChunkSection section = sections[ly >> 4];
+        return section == null ? 0 : section.get(ChunkSection.index(x, ly & 15, z));
+    }
+    // Approximate heap used by block storage
+    public long getStorageBytes() {
+        long bytes = 16 + SECTION_COUNT * 4L;
+        for (ChunkSection section : sections) if (section != null) bytes += section.memoryBytes();
+        return bytes;
+    }
     private long getSeed(int cx, int cz) { return (long)cx * 341873128712L + (long)cz * 132897987541L; }
-    private int getHighestBlock(int x, int z) { for(int y = MAX_Y - 1; y >= MIN_Y; y--) { if(getB(x, y, z) != 0 && getB(x, y, z) != Block.WATER.id) return y; } return MIN_Y; }
+    public int getHeight(int type, int x, int z) { return heightmaps[type][(z << 4) | x]; }
+    public Biome getBiome(int x, int z) { return BIOMES[biomes[(z << 4) | x]]; }
+    private static boolean countsFor(int type, byte id) { return type == HEIGHT_ANY ? id != 0 : type == HEIGHT_OPAQUE ? Block.get(id).opaque : id != 0 && id != Block.WATER.id; }
+    // One top-down pass per column over the freshly generated terrain
+    private void computeHeightmaps(byte[] blocks) {
+        for (int col = 0; col < SIZE * SIZE; col++) {
+            for (short[] map : heightmaps) map[col] = MIN_Y - 1;
+            int found = 0;
+            for (int y = MAX_Y - 1, i = VOLUME - SIZE * SIZE + col; y >= MIN_Y && found != 7; y--, i -= SIZE * SIZE) {
+                if (blocks[i] == 0) continue;
+                for (int t = 0; t < 3; t++) if ((found & (1 << t)) == 0 && countsFor(t, blocks[i])) { heightmaps[t][col] = (short) y; found |= 1 << t; }
+            }
+        }
+    }
+    // Raising a column is O(1); only clearing its current top block scans down
+    private void updateHeightmaps(int x, int y, int z, byte id) {
+        int col = (z << 4) | x;
+        for (int t = 0; t < 3; t++) {
+            short[] map = heightmaps[t];
+            if (countsFor(t, id)) { if (y > map[col]) map[col] = (short) y; }
+            else if (y == map[col]) { int h = y - 1; while (h >= MIN_Y && !countsFor(t, getB(x, h, z))) h--; map[col] = (short) h; }
+        }
+    }
+    private static int index(int x, int y, int z) { return ((y - MIN_Y) << 8) | (z << 4) | x; }
+    // Unpacks every section into a flat array laid out like index()
+    private void copyBlocks(byte[] dst) {
+        for (int i = 0; i < SECTION_COUNT; i++) {
+            int offset = i * ChunkSection.VOLUME;
+            if (sections[i] == null) Arrays.fill(dst, offset, offset + ChunkSection.VOLUME, (byte) 0);
+            else sections[i].copyTo(dst, offset);
+        }
+    }
 
-    private static final float[][][] FACE_TEMPLATES = { {{0,1,1, 0,0}, {1,1,1, 1,0}, {1,1,0, 1,1}, {0,1,0, 0,1}}, {{0,0,1, 0,1}, {0,0,0, 0,0}, {1,0,0, 1,0}, {1,0,1, 1,1}}, {{1,0,1, 1,1}, {1,1,1, 1,0}, {0,1,1, 0,0}, {0,0,1, 0,1}}, {{0,0,0, 1,1}, {0,1,0, 1,0}, {1,1,0, 0,0}, {1,0,0, 0,1}}, {{1,0,0, 1,1}, {1,1,0, 1,0}, {1,1,1, 0,0}, {1,0,1, 0,1}}, {{0,0,1, 1,1}, {0,1,1, 1,0}, {0,1,0, 0,0}, {0,0,0, 0,1}} };
-    private void addFace(MeshBuilder verts, float x, float y, float z, Block b, int dx, int dy, int dz) { float wx = cx * SIZE + x; float wz = cz * SIZE + z; float wy = y; float tex = (dy == 1) ? b.top : (dy == -1 ? b.bot : b.side); float r = 1.0f, g = 1.0f, bl = 1.0f; boolean applyTint = false; if (b.tintType == Block.TINT_ALL) applyTint = true; else if (b.tintType == Block.TINT_TOP && dy == 1) applyTint = true; if (applyTint) { r = b.r; g = b.g; bl = b.b; } if (dy == -1) { r*=0.7f; g*=0.7f; bl*=0.7f; } else if (dx != 0 || dz != 0) { r*=0.85f; g*=0.85f; bl*=0.85f; } int face = (dy==1)?0:(dy==-1)?1:(dz==1)?2:(dz==-1)?3:(dx==1)?4:5; float[][] d = FACE_TEMPLATES[face]; int[] indices = {0, 1, 3, 1, 2, 3}; for (int i : indices) { verts.add(wx + d[i][0]); verts.add(wy + d[i][1]); verts.add(wz + d[i][2]); verts.add(d[i][3]); verts.add(d[i][4]); verts.add(tex); verts.add(r); verts.add(g); verts.add(bl); } }
-}
\ No newline at end of file
+    private static final int[] QUAD_INDICES = {0, 1, 3, 1, 2, 3};
+    private static final int[] UNIT_SIZE = {1, 1, 1};
+    // Corner positions per face; UVs are derived from the position in the vertex shader
+    private static final int[][][] FACE_TEMPLATES = { {{0,1,1}, {1,1,1}, {1,1,0}, {0,1,0}}, {{0,0,1}, {0,0,0}, {1,0,0}, {1,0,1}}, {{1,0,1}, {1,1,1}, {0,1,1}, {0,0,1}}, {{0,0,0}, {0,1,0}, {1,1,0}, {1,0,0}}, {{1,0,0}, {1,1,0}, {1,1,1}, {1,0,1}}, {{0,0,1}, {0,1,1}, {0,1,0}, {0,0,0}} };
+    // x, y, z, u, v of the two crossed planes
+    private static final int[][] CROSS_TEMPLATE = { {0,0,0, 0,1}, {1,0,1, 1,1}, {1,1,1, 1,0}, {0,0,0, 0,1}, {1,1,1, 1,0}, {0,1,0, 0,0}, {0,0,1, 0,1}, {1,0,0, 1,1}, {1,1,0, 1,0}, {0,0,1, 0,1}, {1,1,0, 1,0}, {1,1,1, 0,0} };
+    private void addFace(MeshBuilder verts, int x, int y, int z, Block b, int dx, int dy, int dz) { int layer = (dy == 1) ? b.top : (dy == -1 ? b.bot : b.side); int face = (dy==1)?0:(dy==-1)?1:(dz==1)?2:(dz==-1)?3:(dx==1)?4:5; emitQuad(verts, x, y - MIN_Y, z, UNIT_SIZE, face, layer, ChunkVertex.paletteIndex(b, face)); }
+}
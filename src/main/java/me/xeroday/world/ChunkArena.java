@@ -0,0 +1,90 @@
+package me.xeroday.world;
+
+import me.xeroday.utils.ArenaAllocator;
+
+import java.nio.IntBuffer;
+
+import static org.lwjgl.opengl.GL33.*;
+
+/**
+ * One vertex buffer (and VAO) shared by every chunk mesh of a render pass, carved up by an
+ * ArenaAllocator in vertex units, so a pass is drawn with one glMultiDrawArrays.
+ *
+ * When no free range fits, the buffer is rebuilt: compacted at the same size if that leaves a
+ * quarter of it free, otherwise doubled. Live meshes are copied over on the GPU and their
+ * allocations move with them.
+ */
+public class ChunkArena {
+    public static final int VERTEX_BYTES = 8;
+    private static final int MAX_VERTICES = Integer.MAX_VALUE / VERTEX_BYTES;
+
+    private final ArenaAllocator allocator;
+    private int vao, vbo;
+
+    // METRICS
+    private int rebuilds;
+
+    public ChunkArena(int initialVertices) {
+        allocator = new ArenaAllocator(initialVertices);
+        vao = glGenVertexArrays();
+        vbo = createBuffer(vao, initialVertices);
+    }
+
+    public ArenaAllocator.Allocation alloc(int vertices) {
+        ArenaAllocator.Allocation a = allocator.alloc(vertices);
+        if (a != null) return a;
+
+        long needed = (long) allocator.used() + vertices;
+        long capacity = allocator.capacity();
+        while (needed > capacity * 3 / 4) capacity *= 2;
+        rebuild((int) Math.min(capacity, MAX_VERTICES));
+        return allocator.alloc(vertices); // still null if the arena is at its size limit
+    }
+
+    public void free(ArenaAllocator.Allocation a) { if (a != null) allocator.free(a); }
+
+    public int getBuffer() { return vbo; }
+
+    // first/count hold one range per mesh, in vertices
+    public void draw(IntBuffer first, IntBuffer count) {
+        glBindVertexArray(vao);
+        glMultiDrawArrays(GL_TRIANGLES, first, count);
+    }
+
+    public String getStats() {
+        return String.format("%.1f/%.1f MB", allocator.used() * (double) VERTEX_BYTES / 1048576.0, allocator.capacity() * (double) VERTEX_BYTES / 1048576.0);
+    }
+    public int getRebuilds() { return rebuilds; }
+
+    public void cleanup() {
+        glDeleteVertexArrays(vao);
+        glDeleteBuffers(vbo);
+    }
+
+    private void rebuild(int capacity) {
+        int newVao = glGenVertexArrays();
+        int newVbo = createBuffer(newVao, capacity);
+        glBindBuffer(GL_COPY_READ_BUFFER, vbo);
+        glBindBuffer(GL_COPY_WRITE_BUFFER, newVbo);
+        for (ArenaAllocator.Move m : allocator.compact(capacity)) {
+            glCopyBufferSubData(GL_COPY_READ_BUFFER, GL_COPY_WRITE_BUFFER, (long) m.oldOffset() * VERTEX_BYTES, (long) m.newOffset() * VERTEX_BYTES, (long) m.size() * VERTEX_BYTES);
+        }
+        glBindBuffer(GL_COPY_WRITE_BUFFER, 0);
+        glBindBuffer(GL_COPY_READ_BUFFER, 0);
+        cleanup();
+        vao = newVao; vbo = newVbo;
+        rebuilds++;
+    }
+
+    private static int createBuffer(int vao, int vertices) {
+        int vbo = glGenBuffers();
+        glBindVertexArray(vao);
+        glBindBuffer(GL_ARRAY_BUFFER, vbo);
+        glBufferData(GL_ARRAY_BUFFER, (long) vertices * VERTEX_BYTES, GL_DYNAMIC_DRAW);
+        glVertexAttribIPointer(0, 2, GL_UNSIGNED_INT, VERTEX_BYTES, 0);
+        glEnableVertexAttribArray(0);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        glBindVertexArray(0);
+        return vbo;
+    }
+}
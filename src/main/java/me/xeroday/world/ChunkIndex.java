@@ -0,0 +1,166 @@
+package me.xeroday.world;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Loaded chunks and chunks being loaded, keyed by chunk coordinates without boxing.
+ *
+ * Both live in a toroidal grid: chunk (x, z) sits in cell (x mod side, z mod side), with side the
+ * power of two above 2 * radius + 1. Everything World keeps is within radius of the player, so it
+ * never has to be moved when the player does, and a lookup is one array read plus a coordinate
+ * check. A chunk whose cell is still taken (the player moved and the old chunk is not unloaded
+ * yet) goes to a small sorted copy-on-write fallback, and is moved into the cell once it frees up.
+ *
+ * Reads are lock free and allocate nothing, from any thread. Chunk writes are synchronized and in
+ * practice come from the render thread; loading marks may be cleared from any thread.
+ */
+public class ChunkIndex {
+    private static final long NO_KEY = Long.MIN_VALUE; // (Integer.MIN_VALUE, 0), never loaded
+
+    private final int shift, mask;
+    private final AtomicReferenceArray<Chunk> cells;
+    private final AtomicLongArray loading;
+    private volatile Fallback fallback = Fallback.EMPTY;
+    private final Set<Long> loadingFallback = ConcurrentHashMap.newKeySet();
+    private volatile int size;
+
+    // Chunks sorted by key; replaced, never changed, so readers can binary search without locks
+    private record Fallback(long[] keys, Chunk[] chunks) {
+        static final Fallback EMPTY = new Fallback(new long[0], new Chunk[0]);
+
+        Chunk get(long key) {
+            if (keys.length == 0) return null;
+            int i = Arrays.binarySearch(keys, key);
+            return i >= 0 ? chunks[i] : null;
+        }
+
+        Fallback with(long key, Chunk c) {
+            int i = Arrays.binarySearch(keys, key);
+            if (i >= 0) {
+                Chunk[] replaced = chunks.clone();
+                replaced[i] = c;
+                return new Fallback(keys, replaced);
+            }
+            int at = -i - 1;
+            long[] k = new long[keys.length + 1];
+            Chunk[] v = new Chunk[keys.length + 1];
+            System.arraycopy(keys, 0, k, 0, at); System.arraycopy(keys, at, k, at + 1, keys.length - at);
+            System.arraycopy(chunks, 0, v, 0, at); System.arraycopy(chunks, at, v, at + 1, keys.length - at);
+            k[at] = key; v[at] = c;
+            return new Fallback(k, v);
+        }
+
+        Fallback without(long key) {
+            int i = Arrays.binarySearch(keys, key);
+            if (i < 0) return this;
+            if (keys.length == 1) return EMPTY;
+            long[] k = new long[keys.length - 1];
+            Chunk[] v = new Chunk[keys.length - 1];
+            System.arraycopy(keys, 0, k, 0, i); System.arraycopy(keys, i + 1, k, i, k.length - i);
+            System.arraycopy(chunks, 0, v, 0, i); System.arraycopy(chunks, i + 1, v, i, v.length - i);
+            return new Fallback(k, v);
+        }
+    }
+
+    public ChunkIndex(int radius) {
+        int side = Integer.highestOneBit(2 * radius + 1) << 1;
+        this.shift = Integer.numberOfTrailingZeros(side);
+        this.mask = side - 1;
+        this.cells = new AtomicReferenceArray<>(side * side);
+        this.loading = new AtomicLongArray(side * side);
+        for (int i = 0; i < side * side; i++) loading.set(i, NO_KEY);
+    }
+
+    public static long key(int x, int z) { return ((long) x << 32) | (z & 0xFFFFFFFFL); }
+    private int cell(int x, int z) { return (x & mask) << shift | (z & mask); }
+
+    // LOADED CHUNKS
+    public Chunk get(int x, int z) {
+        int cell = cell(x, z);
+        Chunk c = cells.getAcquire(cell);
+        if (c != null && c.cx == x && c.cz == z) return c;
+        c = fallback.get(key(x, z));
+        if (c != null) return c;
+        // remove() may have moved it from the fallback into the cell after the first read; it
+        // publishes the cell before the fallback, so a fallback without it means the cell has it
+        c = cells.getAcquire(cell);
+        return c != null && c.cx == x && c.cz == z ? c : null;
+    }
+
+    public boolean contains(int x, int z) { return get(x, z) != null; }
+    public int size() { return size; }
+
+    // Adds or replaces the chunk at c's coordinates
+    public synchronized void put(Chunk c) {
+        int cell = cell(c.cx, c.cz);
+        long key = key(c.cx, c.cz);
+        Chunk old = cells.get(cell);
+        Fallback f = fallback;
+        if (f.get(key) != null) { fallback = f.with(key, c); return; }
+        if (old == null || old.cx == c.cx && old.cz == c.cz) {
+            cells.setRelease(cell, c);
+            if (old == null) size++;
+        } else {
+            fallback = f.with(key, c);
+            size++;
+        }
+    }
+
+    public synchronized Chunk remove(int x, int z) {
+        int cell = cell(x, z);
+        Chunk old = cells.get(cell);
+        Fallback f = fallback;
+        if (old != null && old.cx == x && old.cz == z) {
+            // move a waiting chunk into the cell before dropping it from the fallback, get() re-reads the cell
+            Chunk waiting = null;
+            for (Chunk c : f.chunks) if (cell(c.cx, c.cz) == cell) { waiting = c; break; }
+            cells.setRelease(cell, waiting);
+            if (waiting != null) fallback = f.without(key(waiting.cx, waiting.cz));
+        } else {
+            old = f.get(key(x, z));
+            if (old == null) return null;
+            fallback = f.without(key(x, z));
+        }
+        size--;
+        return old;
+    }
+
+    // A snapshot of the loaded chunks
+    public List<Chunk> values() {
+        List<Chunk> out = new ArrayList<>(size);
+        for (int i = 0; i < cells.length(); i++) {
+            Chunk c = cells.getAcquire(i);
+            if (c != null) out.add(c);
+        }
+        out.addAll(Arrays.asList(fallback.chunks));
+        return out;
+    }
+
+    // LOADING MARKS
+    // false if (x, z) is already marked
+    public boolean markLoading(int x, int z) {
+        long key = key(x, z);
+        int cell = cell(x, z);
+        if (!loadingFallback.isEmpty() && loadingFallback.contains(key)) return false;
+        long current = loading.get(cell);
+        if (current == key) return false;
+        if (current == NO_KEY && loading.compareAndSet(cell, NO_KEY, key)) return true;
+        return loadingFallback.add(key);
+    }
+
+    public void clearLoading(int x, int z) {
+        long key = key(x, z);
+        if (!loading.compareAndSet(cell(x, z), key, NO_KEY) && !loadingFallback.isEmpty()) loadingFallback.remove(key);
+    }
+
+    public boolean isLoading(int x, int z) {
+        long key = key(x, z);
+        return loading.get(cell(x, z)) == key || !loadingFallback.isEmpty() && loadingFallback.contains(key);
+    }
+}
@@ -0,0 +1,188 @@
+package me.xeroday.world;
+
+import me.xeroday.engine.StagingRing;
+import me.xeroday.utils.ArenaAllocator;
+import me.xeroday.utils.MeshBuilder;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.IntBuffer;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.lwjgl.opengl.GL33.*;
+
+/**
+ * GPU side of a chunk: its ranges in the four shared ChunkArenas (one per render pass) and a slot
+ * in the chunk origin table. Created and used on the render thread only, Chunk itself holds block
+ * data and the CPU built mesh, so generation never touches LWJGL.
+ *
+ * Vertices are chunk local; on upload the chunk's slot is written into the top of word B and the
+ * shaders look the origin up in a texture buffer, so one glMultiDrawArrays per pass draws every
+ * visible chunk. Vertex data goes through the shared StagingRing (-Dxylo.stagingMB, default 16).
+ *
+ * Each pass's vertices are ordered by section, so the sections SectionCuller marks visible are
+ * drawn as sub-ranges (adjacent sections merged into one range).
+ */
+public class ChunkMesh {
+    public static final int SOLID = 0, WATER = 1, SHORT_GRASS = 2, TALL_GRASS = 3;
+    public static final int ORIGIN_TEXTURE_UNIT = 1; // chunkOrigins sampler, unit 0 is the block textures
+    private static final int STAGING_BYTES = Integer.getInteger("xylo.stagingMB", 16) * 1024 * 1024;
+    private static final int[] INITIAL_VERTICES = { 1 << 20, 1 << 18, 1 << 18, 1 << 16 };
+    private static final int MAX_SLOTS = 1 << 16;
+
+    // shared GL state, created with the first upload
+    private static ChunkArena[] arenas;
+    private static StagingRing staging;
+    private static int originBuffer, originTexture;
+    private static final BitSet usedSlots = new BitSet(MAX_SLOTS);
+    private static IntBuffer drawFirst, drawCount;
+    private static int drawCalls, drawCallsLastFrame;
+
+    private final int cx, cz;
+    private final int slot;
+    private final ArenaAllocator.Allocation[] ranges = new ArenaAllocator.Allocation[4];
+    private final int[][] sectionStarts = new int[4][];
+    final long[] visibility = new long[Chunk.SECTION_COUNT];
+
+    // set by SectionCuller for the current frame
+    int visibleSections, visibleFrame = -1;
+
+    private ChunkMesh(int cx, int cz, int slot) {
+        this.cx = cx;
+        this.cz = cz;
+        this.slot = slot;
+    }
+
+    public static void nextFrame() {
+        drawCallsLastFrame = drawCalls;
+        drawCalls = 0;
+        if (staging != null) staging.endFrame();
+    }
+
+    // Uploads the chunk's newest mesh if it has one (see ChunkUploadQueue), returns the bytes sent
+    static int upload(Chunk c) {
+        Chunk.BuiltMesh pending = c.takePendingMesh();
+        if (pending == null) return 0;
+        if (c.mesh == null) {
+            init();
+            int slot = usedSlots.nextClearBit(0);
+            if (slot >= MAX_SLOTS) throw new IllegalStateException("Out of chunk slots");
+            usedSlots.set(slot);
+            c.mesh = new ChunkMesh(c.cx, c.cz, slot);
+            glBindBuffer(GL_TEXTURE_BUFFER, originBuffer);
+            glBufferSubData(GL_TEXTURE_BUFFER, (long) slot * 16, new int[]{ c.cx * Chunk.SIZE, Chunk.MIN_Y, c.cz * Chunk.SIZE, 0 });
+            glBindBuffer(GL_TEXTURE_BUFFER, 0);
+        }
+        int bytes = 0;
+        for (int pass = 0; pass < pending.passes.length; pass++) bytes += c.mesh.uploadPass(pass, pending.passes[pass], pending.sectionStarts[pass]);
+        System.arraycopy(pending.visibility, 0, c.mesh.visibility, 0, c.mesh.visibility.length);
+        pending.release(); // copied into the staging ring
+        return Math.max(bytes, 1); // an empty mesh still counts as an upload
+    }
+
+    private int uploadPass(int pass, MeshBuilder builder, int[] starts) {
+        sectionStarts[pass] = starts;
+        int ints = builder.size();
+        int vertices = ints / 2;
+        ChunkArena arena = arenas[pass];
+        if (ranges[pass] != null && ranges[pass].size() != vertices) { arena.free(ranges[pass]); ranges[pass] = null; }
+        if (vertices == 0) return 0;
+        if (ranges[pass] == null && (ranges[pass] = arena.alloc(vertices)) == null) return 0; // arena full, skip the pass
+
+        for (int i = 1; i < ints; i += 2) builder.set(i, ChunkVertex.withSlot(builder.get(i), slot));
+        long offset = (long) ranges[pass].offset() * ChunkArena.VERTEX_BYTES;
+        if (!staging.upload(builder.address(), ints, arena.getBuffer(), offset)) {
+            // larger than the whole ring
+            glBindBuffer(GL_ARRAY_BUFFER, arena.getBuffer());
+            glBufferSubData(GL_ARRAY_BUFFER, offset, builder.buffer());
+            glBindBuffer(GL_ARRAY_BUFFER, 0);
+        }
+        return ints * 4;
+    }
+
+    // Binds the origin table; call before drawing passes
+    public static void bind() {
+        if (arenas == null) return;
+        glActiveTexture(GL_TEXTURE0 + ORIGIN_TEXTURE_UNIT);
+        glBindTexture(GL_TEXTURE_BUFFER, originTexture);
+        glActiveTexture(GL_TEXTURE0);
+    }
+
+    // One multi-draw for the pass over the visible sections of the chunks, in list order
+    public static void draw(List<Chunk> chunks, int pass) {
+        if (arenas == null) return;
+        int maxRanges = chunks.size() * (Chunk.SECTION_COUNT / 2); // at worst every other section
+        if (drawFirst == null || drawFirst.capacity() < maxRanges) {
+            int capacity = Math.max(1024, Integer.highestOneBit(maxRanges) << 1);
+            if (drawFirst != null) { MemoryUtil.memFree(drawFirst); MemoryUtil.memFree(drawCount); }
+            drawFirst = MemoryUtil.memAllocInt(capacity);
+            drawCount = MemoryUtil.memAllocInt(capacity);
+        }
+        drawFirst.clear(); drawCount.clear();
+        for (Chunk c : chunks) {
+            ChunkMesh mesh = c.mesh;
+            ArenaAllocator.Allocation range = mesh != null ? mesh.ranges[pass] : null;
+            if (range == null) continue;
+            int[] starts = mesh.sectionStarts[pass];
+            int sections = mesh.visibleSections;
+            while (sections != 0) {
+                int first = Integer.numberOfTrailingZeros(sections);
+                int end = Integer.numberOfTrailingZeros(~(sections >>> first)) + first; // end of the run of visible sections
+                sections &= end >= 32 ? 0 : -1 << end;
+                int count = starts[end] - starts[first];
+                if (count == 0) continue;
+                drawFirst.put(range.offset() + starts[first]);
+                drawCount.put(count);
+            }
+        }
+        if (drawFirst.position() == 0) return;
+        drawFirst.flip(); drawCount.flip();
+        arenas[pass].draw(drawFirst, drawCount);
+        drawCalls++;
+    }
+
+    // Frees the arena ranges and the slot
+    public void cleanup() {
+        for (int i = 0; i < ranges.length; i++) {
+            if (ranges[i] != null) arenas[i].free(ranges[i]);
+            ranges[i] = null;
+        }
+        usedSlots.clear(slot);
+    }
+
+    public static String getStats() {
+        if (arenas == null) return "none";
+        int rebuilds = 0;
+        for (ChunkArena arena : arenas) rebuilds += arena.getRebuilds();
+        return String.format("%d meshes, solid %s, %d draws, %d rebuilds, %d ring waits",
+                usedSlots.cardinality(), arenas[SOLID].getStats(), drawCallsLastFrame, rebuilds, staging.getWaits());
+    }
+
+    // Frees the arenas, ring and origin table at shutdown
+    public static void cleanupShared() {
+        if (arenas == null) return;
+        for (ChunkArena arena : arenas) arena.cleanup();
+        staging.cleanup();
+        glDeleteTextures(originTexture);
+        glDeleteBuffers(originBuffer);
+        if (drawFirst != null) { MemoryUtil.memFree(drawFirst); MemoryUtil.memFree(drawCount); }
+        arenas = null; staging = null; drawFirst = null; drawCount = null;
+        usedSlots.clear();
+    }
+
+    private static void init() {
+        if (arenas != null) return;
+        arenas = new ChunkArena[INITIAL_VERTICES.length];
+        for (int i = 0; i < arenas.length; i++) arenas[i] = new ChunkArena(INITIAL_VERTICES[i]);
+        staging = new StagingRing(STAGING_BYTES);
+
+        originBuffer = glGenBuffers();
+        glBindBuffer(GL_TEXTURE_BUFFER, originBuffer);
+        glBufferData(GL_TEXTURE_BUFFER, (long) MAX_SLOTS * 16, GL_DYNAMIC_DRAW);
+        glBindBuffer(GL_TEXTURE_BUFFER, 0);
+        originTexture = glGenTextures();
+        glBindTexture(GL_TEXTURE_BUFFER, originTexture);
+        glTexBuffer(GL_TEXTURE_BUFFER, GL_RGBA32I, originBuffer);
+        glBindTexture(GL_TEXTURE_BUFFER, 0);
+    }
+}
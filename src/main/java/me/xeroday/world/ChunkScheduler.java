@@ -0,0 +1,206 @@
+package me.xeroday.world;
+
+import me.xeroday.utils.MeshBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Worker pool for chunk generation and meshing, ordered by how much the player needs each job.
+ *
+ * Jobs are keyed on distance to the player's chunk, stretched for chunks behind the view
+ * direction, so what is in front of the camera comes first. When the player moves to another
+ * chunk or turns, the queue is re-scored, and queued jobs that fell out of range are dropped
+ * (their onCancel runs instead). A job taken by a worker is checked against the range once more
+ * before it starts.
+ */
+public class ChunkScheduler {
+    public enum Kind { GEN, MESH }
+
+    // Leave one core for the render thread
+    public static final int DEFAULT_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors() - 1);
+
+    // Chunks straight behind the camera count as this many times further away
+    private static final float BEHIND_PENALTY = 2.0f;
+
+    private final PriorityQueue<Job> queue = new PriorityQueue<>();
+    private final Thread[] workers;
+    private int range;
+    private int playerX, playerZ;
+    private float dirX = 0, dirZ = -1;
+    private float scoredDirX = 0, scoredDirZ = -1;
+    private long sequence;
+    private boolean running = true;
+    private boolean rangeChanged;
+    private final List<Job> rescored = new ArrayList<>(), dropped = new ArrayList<>(); // updatePlayer's, kept between frames
+
+    // METRICS
+    private long submitted, started, cancelled, failed;
+    private long totalWaitNanos, maxWaitNanos;
+    private final int[] queuedByKind = new int[Kind.values().length];
+
+    private static class Job implements Comparable<Job> {
+        final Kind kind;
+        final int cx, cz;
+        final Runnable task, onCancel;
+        final long sequence, submitTime;
+        float cost;
+
+        Job(Kind kind, int cx, int cz, Runnable task, Runnable onCancel, long sequence) {
+            this.kind = kind; this.cx = cx; this.cz = cz;
+            this.task = task; this.onCancel = onCancel;
+            this.sequence = sequence;
+            this.submitTime = System.nanoTime();
+        }
+
+        // cheapest first, meshing before generation at equal cost, then FIFO
+        @Override
+        public int compareTo(Job o) {
+            int c = Float.compare(cost, o.cost);
+            if (c == 0) c = o.kind.compareTo(kind);
+            return c != 0 ? c : Long.compare(sequence, o.sequence);
+        }
+    }
+
+    public ChunkScheduler(int range) {
+        this(range, DEFAULT_THREADS);
+    }
+
+    public ChunkScheduler(int range, int threads) {
+        this.range = range;
+        this.workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(() -> {
+                try { workerLoop(); } finally { MeshBuilder.freeThreadPool(); }
+            }, "Chunk Worker " + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    // onCancel (may be null) runs instead of task if the job is dropped for being out of range
+    public void submit(Kind kind, int cx, int cz, Runnable task, Runnable onCancel) {
+        synchronized (this) {
+            if (running) {
+                Job job = new Job(kind, cx, cz, task, onCancel, sequence++);
+                job.cost = cost(job.cx, job.cz);
+                queue.add(job);
+                queuedByKind[kind.ordinal()]++;
+                submitted++;
+                notify();
+                return;
+            }
+        }
+        if (onCancel != null) onCancel.run();
+    }
+
+    // Call every frame from one thread; re-scores the queue only after a chunk change or a noticeable turn
+    public void updatePlayer(int cx, int cz, float dirX, float dirZ) {
+        float len = (float) Math.sqrt(dirX * dirX + dirZ * dirZ);
+        if (len > 0) { dirX /= len; dirZ /= len; }
+        synchronized (this) {
+            boolean moved = cx != playerX || cz != playerZ;
+            boolean turned = dirX * scoredDirX + dirZ * scoredDirZ < 0.9f;
+            playerX = cx; playerZ = cz;
+            this.dirX = dirX; this.dirZ = dirZ;
+            if (!moved && !turned && !rangeChanged) return;
+            scoredDirX = dirX; scoredDirZ = dirZ;
+            rangeChanged = false;
+
+            for (Job job : queue) rescored.add(job);
+            queue.clear();
+            for (Job job : rescored) {
+                if (inRange(job)) {
+                    job.cost = cost(job.cx, job.cz);
+                    queue.add(job);
+                } else {
+                    dropped.add(job);
+                    queuedByKind[job.kind.ordinal()]--;
+                    cancelled++;
+                }
+            }
+            rescored.clear();
+        }
+        for (Job job : dropped) if (job.onCancel != null) job.onCancel.run();
+        dropped.clear();
+    }
+
+    // New render distance; jobs now out of range are dropped by the next updatePlayer
+    public synchronized void setRange(int range) {
+        this.range = range;
+        rangeChanged = true;
+    }
+
+    // Stops the workers; anything still queued is cancelled
+    public void shutdown() {
+        List<Job> dropped;
+        synchronized (this) {
+            running = false;
+            dropped = new ArrayList<>(queue);
+            queue.clear();
+            cancelled += dropped.size();
+            Arrays.fill(queuedByKind, 0);
+            notifyAll();
+        }
+        for (Job job : dropped) if (job.onCancel != null) job.onCancel.run();
+    }
+
+    public int getThreadCount() { return workers.length; }
+    public synchronized int getQueued(Kind kind) { return queuedByKind[kind.ordinal()]; }
+    public synchronized long getSubmitted() { return submitted; }
+    public synchronized long getStarted() { return started; }
+    public synchronized long getCancelled() { return cancelled; }
+    public synchronized long getFailed() { return failed; }
+    public synchronized double getAverageWaitMillis() { return started == 0 ? 0 : totalWaitNanos / 1e6 / started; }
+    public synchronized double getMaxWaitMillis() { return maxWaitNanos / 1e6; }
+
+    // One line for the HUD
+    public synchronized String getStats() {
+        return String.format("gen %d / mesh %d queued, wait %.1f ms (max %.0f), %d cancelled",
+                queuedByKind[Kind.GEN.ordinal()], queuedByKind[Kind.MESH.ordinal()], getAverageWaitMillis(), getMaxWaitMillis(), cancelled);
+    }
+
+    private void workerLoop() {
+        while (true) {
+            Job job;
+            boolean run;
+            synchronized (this) {
+                while (running && queue.isEmpty()) {
+                    try { wait(); } catch (InterruptedException e) { return; }
+                }
+                if (!running) return;
+                job = queue.poll();
+                queuedByKind[job.kind.ordinal()]--;
+                run = inRange(job);
+                if (run) {
+                    long waited = System.nanoTime() - job.submitTime;
+                    started++;
+                    totalWaitNanos += waited;
+                    maxWaitNanos = Math.max(maxWaitNanos, waited);
+                } else {
+                    cancelled++;
+                }
+            }
+
+            try {
+                if (run) job.task.run();
+                else if (job.onCancel != null) job.onCancel.run();
+            } catch (Exception e) {
+                synchronized (this) { failed++; }
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private boolean inRange(Job job) { return Math.abs(job.cx - playerX) <= range && Math.abs(job.cz - playerZ) <= range; }
+
+    private float cost(int cx, int cz) {
+        int dx = cx - playerX, dz = cz - playerZ;
+        float dist = (float) Math.sqrt(dx * dx + dz * dz);
+        if (dist == 0) return 0;
+        float facing = (dx * dirX + dz * dirZ) / dist; // 1 ahead, -1 behind
+        return dist * (1 + (BEHIND_PENALTY - 1) * (1 - facing) / 2);
+    }
+}
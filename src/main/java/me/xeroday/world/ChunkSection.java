@@ -0,0 +1,163 @@
+package me.xeroday.world;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * 16x16x16 block storage for one vertical slice of a chunk.
+ *
+ * A section starts out uniform (a single id, no arrays at all). The first differing write
+ * switches it to a palette of ids plus bit-packed indices (1, 2, 4 or 8 bits per block),
+ * widening as the palette grows. Freshly generated chunks are built in one go with pack(),
+ * which only keeps the ids actually present.
+ */
+public class ChunkSection {
+    public static final int SIZE = 16;
+    public static final int VOLUME = SIZE * SIZE * SIZE;
+
+    private byte single;
+    private byte[] palette;
+    private int paletteSize;
+    private int bits;
+    private long[] data;
+
+    public ChunkSection(byte fill) {
+        this.single = fill;
+    }
+
+    // y-major so a horizontal layer is contiguous
+    public static int index(int x, int y, int z) { return (y << 8) | (z << 4) | x; }
+
+    public byte get(int index) {
+        if (palette == null) return single;
+        int perLong = 64 / bits;
+        long word = data[index / perLong];
+        int shift = (index % perLong) * bits;
+        return palette[(int) (word >>> shift) & ((1 << bits) - 1)];
+    }
+
+    public void set(int index, byte id) {
+        if (palette == null) {
+            if (id == single) return;
+            toPalette();
+        }
+        int p = paletteIndexOf(id);
+        if (p < 0) {
+            if (paletteSize == (1 << bits)) resize(bits * 2);
+            palette[paletteSize] = id;
+            p = paletteSize++;
+        }
+        write(index, p);
+    }
+
+    public boolean isUniform() { return palette == null; }
+    public byte getUniformId() { return single; }
+
+    // Builds a section from 4096 ids laid out like index(), or null if they are all air
+    public static ChunkSection pack(byte[] src, int offset) {
+        int[] lookup = new int[256];
+        byte[] ids = new byte[256];
+        int count = 0;
+        for (int i = 0; i < VOLUME; i++) {
+            int id = src[offset + i] & 0xFF;
+            if (lookup[id] == 0) { ids[count++] = (byte) id; lookup[id] = count; }
+        }
+        if (count == 1) return ids[0] == 0 ? null : new ChunkSection(ids[0]);
+
+        ChunkSection section = new ChunkSection(ids[0]);
+        section.bits = bitsFor(count);
+        section.palette = Arrays.copyOf(ids, 1 << section.bits);
+        section.paletteSize = count;
+        section.data = new long[VOLUME / (64 / section.bits)];
+        for (int i = 0; i < VOLUME; i++) section.write(i, lookup[src[offset + i] & 0xFF] - 1);
+        return section;
+    }
+
+    public void copyTo(byte[] dst, int offset) {
+        if (palette == null) {
+            Arrays.fill(dst, offset, offset + VOLUME, single);
+            return;
+        }
+        int perLong = 64 / bits;
+        int mask = (1 << bits) - 1;
+        int i = offset;
+        for (long word : data) {
+            for (int k = 0; k < perLong; k++, word >>>= bits) dst[i++] = palette[(int) word & mask];
+        }
+    }
+
+    // Stored as-is: uniform id, bits (0 = uniform), then palette and packed words
+    public void write(DataOutput out) throws IOException {
+        out.writeByte(single);
+        out.writeByte(palette == null ? 0 : bits);
+        if (palette == null) return;
+        out.writeByte(paletteSize - 1);
+        out.write(palette, 0, paletteSize);
+        for (long word : data) out.writeLong(word);
+    }
+
+    public static ChunkSection read(DataInput in) throws IOException {
+        ChunkSection section = new ChunkSection(in.readByte());
+        int bits = in.readUnsignedByte();
+        if (bits == 0) return section;
+        if (bits != 1 && bits != 2 && bits != 4 && bits != 8) throw new IOException("Bad section bit width " + bits);
+        section.bits = bits;
+        section.paletteSize = in.readUnsignedByte() + 1;
+        if (section.paletteSize > (1 << bits)) throw new IOException("Section palette larger than its bit width");
+        section.palette = new byte[1 << bits];
+        in.readFully(section.palette, 0, section.paletteSize);
+        section.data = new long[VOLUME / (64 / bits)];
+        for (int i = 0; i < section.data.length; i++) section.data[i] = in.readLong();
+        return section;
+    }
+
+    // Approximate heap footprint in bytes (object headers included)
+    public long memoryBytes() {
+        long bytes = 16 + 8 + 8 + 4 + 4 + 8; // header, fields
+        if (palette != null) bytes += 16 + palette.length + 16 + data.length * 8L;
+        return bytes;
+    }
+
+    private void toPalette() {
+        bits = 1;
+        palette = new byte[2];
+        palette[0] = single;
+        paletteSize = 1;
+        data = new long[VOLUME / 64]; // all zero = palette[0]
+    }
+
+    private int paletteIndexOf(byte id) {
+        for (int i = 0; i < paletteSize; i++) if (palette[i] == id) return i;
+        return -1;
+    }
+
+    private void resize(int newBits) {
+        int[] indices = new int[VOLUME];
+        for (int i = 0; i < VOLUME; i++) indices[i] = read(i);
+        bits = newBits;
+        palette = Arrays.copyOf(palette, 1 << newBits);
+        data = new long[VOLUME / (64 / bits)];
+        for (int i = 0; i < VOLUME; i++) write(i, indices[i]);
+    }
+
+    private int read(int index) {
+        int perLong = 64 / bits;
+        return (int) (data[index / perLong] >>> ((index % perLong) * bits)) & ((1 << bits) - 1);
+    }
+
+    private void write(int index, int p) {
+        int perLong = 64 / bits;
+        int slot = index / perLong;
+        int shift = (index % perLong) * bits;
+        long mask = ((1L << bits) - 1) << shift;
+        data[slot] = (data[slot] & ~mask) | ((long) p << shift);
+    }
+
+    private static int bitsFor(int count) {
+        int b = 1;
+        while ((1 << b) < count) b *= 2;
+        return b;
+    }
+}
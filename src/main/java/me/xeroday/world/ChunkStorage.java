@@ -0,0 +1,111 @@
+package me.xeroday.world;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Region file backed chunk store for one world directory (r.<rx>.<rz>.xrg files).
+ *
+ * Saves are serialized and written on a single background thread. Until that write lands the
+ * chunk is kept in pendingWrites, so a chunk that is unloaded and requested again straight away
+ * is copied from memory instead of being regenerated. It is a copy because the unloaded instance
+ * has already dropped its meshes for good, and the writer is still reading it.
+ */
+public class ChunkStorage {
+    private final Path dir;
+    private final Map<Long, RegionFile> regions = new ConcurrentHashMap<>();
+    private final Map<Long, Chunk> pendingWrites = new ConcurrentHashMap<>();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "Chunk Writer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public ChunkStorage(Path dir) {
+        this.dir = dir;
+    }
+
+    // Stored copy of the chunk, or null if it has to be generated
+    public Chunk load(int cx, int cz) {
+        Chunk pending = pendingWrites.get(key(cx, cz));
+        if (pending != null) return pending.copy();
+        try {
+            RegionFile region = getRegion(cx, cz, false);
+            byte[] data = region == null ? null : region.read(cx & (RegionFile.SIZE - 1), cz & (RegionFile.SIZE - 1));
+            if (data == null) return null;
+            return Chunk.readFrom(cx, cz, new DataInputStream(new ByteArrayInputStream(data)));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    // True if the chunk is on disk (or queued to be written), without reading it
+    public boolean contains(int cx, int cz) {
+        if (pendingWrites.containsKey(key(cx, cz))) return true;
+        try {
+            RegionFile region = getRegion(cx, cz, false);
+            return region != null && region.contains(cx & (RegionFile.SIZE - 1), cz & (RegionFile.SIZE - 1));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    public void saveAsync(Chunk c) {
+        if (!c.unsaved) return;
+        long key = key(c.cx, c.cz);
+        pendingWrites.put(key, c);
+        writer.submit(() -> {
+            try { save(c); } finally { pendingWrites.remove(key, c); }
+        });
+    }
+
+    public void save(Chunk c) {
+        try {
+            c.unsaved = false;
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 * 1024);
+            c.writeTo(new DataOutputStream(bytes));
+            getRegion(c.cx, c.cz, true).write(c.cx & (RegionFile.SIZE - 1), c.cz & (RegionFile.SIZE - 1), bytes.toByteArray());
+        } catch (IOException e) {
+            c.unsaved = true;
+            e.printStackTrace();
+        }
+    }
+
+    // Finishes queued writes and closes every region file
+    public void close() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (RegionFile region : regions.values()) {
+            try { region.close(); } catch (IOException e) { e.printStackTrace(); }
+        }
+        regions.clear();
+    }
+
+    private synchronized RegionFile getRegion(int cx, int cz, boolean create) throws IOException {
+        int rx = Math.floorDiv(cx, RegionFile.SIZE), rz = Math.floorDiv(cz, RegionFile.SIZE);
+        long key = key(rx, rz);
+        RegionFile region = regions.get(key);
+        if (region != null) return region;
+
+        Path path = dir.resolve("r." + rx + "." + rz + ".xrg");
+        if (!create && !Files.exists(path)) return null;
+        Files.createDirectories(dir);
+        region = new RegionFile(path);
+        regions.put(key, region);
+        return region;
+    }
+
+    private static long key(int x, int z) { return ((long) x << 32) | (z & 0xFFFFFFFFL); }
+}
@@ -0,0 +1,84 @@
+package me.xeroday.world;
+
+import org.joml.FrustumIntersection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Built meshes waiting to go to the GPU, drained by the render thread under a per-frame budget of
+ * -Dxylo.uploadMs milliseconds (default 2) and -Dxylo.uploadKB kilobytes (default 4096).
+ *
+ * Mesh threads hand chunks over through offer(). Every frame the backlog is ordered visible chunks
+ * first, then by distance to the camera, and uploaded until either budget runs out; one chunk
+ * always goes through so a single huge mesh can't stall the queue.
+ */
+public class ChunkUploadQueue {
+    public static float BUDGET_MS = Float.parseFloat(System.getProperty("xylo.uploadMs", "2"));
+    public static int BUDGET_BYTES = Integer.getInteger("xylo.uploadKB", 4096) * 1024;
+
+    private final Queue<Chunk> incoming = new ConcurrentLinkedQueue<>();
+    private final List<Entry> backlog = new ArrayList<>();
+
+    // METRICS
+    private long totalBytes, totalChunks;
+    private int frameBytes, frameChunks, backlogBytes;
+    private float frameMillis;
+
+    private static class Entry implements Comparable<Entry> {
+        final Chunk chunk;
+        float priority;
+        Entry(Chunk chunk) { this.chunk = chunk; }
+        @Override public int compareTo(Entry o) { return Float.compare(priority, o.priority); }
+    }
+
+    // Any thread, after a chunk published a new mesh
+    void offer(Chunk c) { incoming.add(c); }
+
+    // Render thread, once a frame before drawing
+    void process(World world, FrustumIntersection frustum, float camX, float camZ) {
+        for (Chunk c; (c = incoming.poll()) != null; ) backlog.add(new Entry(c));
+
+        backlogBytes = 0;
+        for (Entry e : backlog) {
+            Chunk c = e.chunk;
+            float dx = c.cx * Chunk.SIZE + 8 - camX, dz = c.cz * Chunk.SIZE + 8 - camZ;
+            boolean visible = frustum.testAab(c.cx * Chunk.SIZE, Chunk.MIN_Y, c.cz * Chunk.SIZE, c.cx * Chunk.SIZE + Chunk.SIZE, Chunk.MAX_Y, c.cz * Chunk.SIZE + Chunk.SIZE);
+            e.priority = (dx * dx + dz * dz) * (visible ? 1 : 16); // off-screen counts as 4x further away
+        }
+        backlog.sort(null);
+
+        long start = System.nanoTime();
+        long budgetNanos = (long) (BUDGET_MS * 1e6);
+        int bytes = 0, chunks = 0, done = 0;
+        for (Entry e : backlog) {
+            if (chunks > 0 && (bytes >= BUDGET_BYTES || System.nanoTime() - start >= budgetNanos)) break;
+            done++;
+            Chunk c = e.chunk;
+            c.clearUploadQueued(); // before taking, so a mesh published meanwhile is offered again
+            if (world.getChunk(c.cx, c.cz) != c) continue; // unloaded while it waited
+            int uploaded = ChunkMesh.upload(c);
+            if (uploaded > 0) { bytes += uploaded; chunks++; }
+        }
+        backlog.subList(0, done).clear();
+        for (Entry e : backlog) backlogBytes += e.chunk.pendingMeshBytes();
+
+        frameBytes = bytes;
+        frameChunks = chunks;
+        frameMillis = (System.nanoTime() - start) / 1e6f;
+        totalBytes += bytes;
+        totalChunks += chunks;
+    }
+
+    public int getBacklog() { return backlog.size() + incoming.size(); }
+    public long getTotalBytes() { return totalBytes; }
+    public long getTotalChunks() { return totalChunks; }
+
+    // One line for the HUD
+    public String getStats() {
+        return String.format("%d chunks / %d KB in %.2f ms, backlog %d (%d KB), %.1f MB total",
+                frameChunks, frameBytes / 1024, frameMillis, getBacklog(), backlogBytes / 1024, totalBytes / 1048576.0);
+    }
+}
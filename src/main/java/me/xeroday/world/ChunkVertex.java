@@ -0,0 +1,66 @@
+package me.xeroday.world;
+
+/**
+ * Packed 8 byte chunk vertex, decoded in world.vert / grass_*.vert.
+ *
+ * word A: x(5) | z(5) | y(9) | face(3) | corner(2) | jitterX(4) | jitterZ(4)
+ * word B: layer(8) | palette(8) | slot(16)
+ *
+ * Positions are chunk local (y counted from MIN_Y). The slot is filled in on upload (ChunkMesh),
+ * the shader adds that slot's entry of the chunkOrigins texture buffer.
+ * Block faces derive their UVs from the position, so greedy quads tile for free; crosses
+ * (FACE_CROSS) take the UV from the corner bits and their sub-block offset from the jitter nibbles.
+ */
+public class ChunkVertex {
+    public static final int FACE_CROSS = 6;
+
+    // Shade per face direction: top, bottom, sides
+    private static final float[] SHADES = { 1.0f, 0.7f, 0.85f };
+    public static final int PALETTE_SIZE = 32; // must match palette[] in the vertex shaders
+
+    public static int packA(int x, int y, int z, int face, int corner, int jitterX, int jitterZ) {
+        return (x & 31) | (z & 31) << 5 | (y & 511) << 10 | (face & 7) << 19 | (corner & 3) << 22
+                | (jitterX & 15) << 24 | (jitterZ & 15) << 28;
+    }
+
+    public static int packB(int layer, int palette) {
+        return (layer & 255) | (palette & 255) << 8;
+    }
+
+    public static int x(int a) { return a & 31; }
+    public static int z(int a) { return (a >>> 5) & 31; }
+    public static int y(int a) { return (a >>> 10) & 511; }
+    public static int face(int a) { return (a >>> 19) & 7; }
+    public static int corner(int a) { return (a >>> 22) & 3; }
+    public static int jitterX(int a) { return (a >>> 24) & 15; }
+    public static int jitterZ(int a) { return (a >>> 28) & 15; }
+    public static int withSlot(int b, int slot) { return (b & 0xFFFF) | slot << 16; }
+
+    public static int layer(int b) { return b & 255; }
+    public static int palette(int b) { return (b >>> 8) & 255; }
+    public static int slot(int b) { return b >>> 16; }
+
+    public static int shadeIndex(int face) { return face == 1 ? 1 : (face >= 2 && face < FACE_CROSS ? 2 : 0); }
+
+    // Palette entry = tint colour * face shade, laid out as tintIndex * 3 + shadeIndex
+    public static int paletteIndex(int tintIndex, int face) { return tintIndex * SHADES.length + shadeIndex(face); }
+
+    public static int paletteIndex(Block b, int face) {
+        boolean tinted = b.tintType == Block.TINT_ALL || (b.tintType == Block.TINT_TOP && face == 0);
+        return paletteIndex(tinted ? b.tintIndex : 0, face);
+    }
+
+    // vec3 array for the palette uniform
+    public static float[] buildPalette() {
+        if (Block.tintCount() * SHADES.length > PALETTE_SIZE) throw new IllegalStateException("Too many tint colours for the vertex palette");
+        float[] palette = new float[PALETTE_SIZE * 3];
+        for (int t = 0; t < Block.tintCount(); t++) {
+            float[] c = Block.getTint(t);
+            for (int s = 0; s < SHADES.length; s++) {
+                int i = (t * SHADES.length + s) * 3;
+                palette[i] = c[0] * SHADES[s]; palette[i + 1] = c[1] * SHADES[s]; palette[i + 2] = c[2] * SHADES[s];
+            }
+        }
+        return palette;
+    }
+}
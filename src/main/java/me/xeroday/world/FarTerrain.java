@@ -0,0 +1,179 @@
+package me.xeroday.world;
+
+import me.xeroday.engine.Shader;
+import me.xeroday.utils.PerlinNoise;
+import org.joml.FrustumIntersection;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Coarse terrain from the edge of the loaded chunks out to -Dxylo.farDistance chunks (default 128,
+ * 0 = off), as FarTile heightfields built on -Dxylo.farThreads background threads (default 1) and
+ * kept in an LRU cache of -Dxylo.farCacheTiles meshes (default 256).
+ *
+ * selectTiles picks the tiles as a quadtree: the far square is covered with the largest tiles,
+ * which split into four while they are closer than renderDistance / 2 << (level - 1) chunks (with
+ * renderDistance at least 8), so the cell size doubles with each ring. Tiles inside the loaded square are left out and
+ * far.frag discards what the others draw over it; chunks kept loaded past it are not drawn (World.isDrawn). A new selection is only drawn once all its tiles
+ * are built, until then the previous one stays up so nothing pops out while walking.
+ */
+public class FarTerrain {
+    public static int FAR_DISTANCE = Integer.getInteger("xylo.farDistance", 128);
+    public static int CACHE_TILES = Integer.getInteger("xylo.farCacheTiles", 256);
+    public static int THREADS = Integer.getInteger("xylo.farThreads", 1);
+
+    private final PerlinNoise noise;
+    private final ExecutorService builder;
+    private final Set<Long> building = ConcurrentHashMap.newKeySet();
+    private final Queue<FarTile> built = new ConcurrentLinkedQueue<>();
+    private final LinkedHashMap<Long, FarTileMesh> cache = new LinkedHashMap<>(64, 0.75f, true); // access order
+
+    private List<Long> drawn = List.of(), pending;
+    private int lastX, lastZ, lastRenderDist = -1, lastFarDist;
+    private int tilesDrawn;
+    private long tilesBuilt;
+
+    public FarTerrain(PerlinNoise noise) {
+        this.noise = noise;
+        this.builder = Executors.newFixedThreadPool(Math.max(1, THREADS), r -> {
+            Thread t = new Thread(r, "Far Terrain");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY); // behind chunk generation
+            return t;
+        });
+    }
+
+    // Render thread, with the far shader bound. (pcx, pcz) is the centre of the loaded square
+    void render(Shader shader, FrustumIntersection frustum, int pcx, int pcz, int renderDist) {
+        if (pcx != lastX || pcz != lastZ || renderDist != lastRenderDist || FAR_DISTANCE != lastFarDist) {
+            lastX = pcx; lastZ = pcz; lastRenderDist = renderDist; lastFarDist = FAR_DISTANCE;
+            pending = new ArrayList<>();
+            selectTiles(pcx, pcz, renderDist, FAR_DISTANCE, pending);
+        }
+
+        for (FarTile t; (t = built.poll()) != null; ) {
+            cache.put(t.key(), new FarTileMesh(t));
+            building.remove(t.key());
+            tilesBuilt++;
+        }
+
+        if (pending != null) {
+            boolean ready = true;
+            for (long key : pending) {
+                if (cache.containsKey(key)) continue;
+                ready = false;
+                if (building.size() >= 2 * THREADS) break; // nearest first, the rest wait
+                if (building.add(key)) builder.execute(() -> build(key));
+            }
+            if (ready) {
+                drawn = pending;
+                pending = null;
+                trimCache();
+            }
+        }
+
+        tilesDrawn = 0;
+        if (drawn.isEmpty()) return;
+        shader.setUniform("loadedArea", (pcx - renderDist) * Chunk.SIZE, (pcz - renderDist) * Chunk.SIZE,
+                (pcx + renderDist + 1) * Chunk.SIZE, (pcz + renderDist + 1) * Chunk.SIZE);
+        for (long key : drawn) {
+            FarTileMesh mesh = cache.get(key);
+            if (mesh == null) continue;
+            FarTile t = mesh.tile;
+            int size = FarTile.size(t.level);
+            if (!frustum.testAab(t.originX, t.minY, t.originZ, t.originX + size, t.maxY + 1, t.originZ + size)) continue;
+            shader.setUniform("tile", t.originX, t.originZ, t.step);
+            mesh.draw();
+            tilesDrawn++;
+        }
+    }
+
+    private void build(long key) {
+        try {
+            built.add(FarTile.build(noise, key));
+        } catch (Exception e) {
+            e.printStackTrace();
+            building.remove(key);
+        }
+    }
+
+    // Least recently drawn first, never a tile that is on screen or about to be
+    private void trimCache() {
+        if (cache.size() <= CACHE_TILES) return;
+        Set<Long> inUse = new HashSet<>(drawn);
+        Iterator<Map.Entry<Long, FarTileMesh>> it = cache.entrySet().iterator();
+        while (cache.size() > CACHE_TILES && it.hasNext()) {
+            Map.Entry<Long, FarTileMesh> e = it.next();
+            if (inUse.contains(e.getKey())) continue;
+            e.getValue().cleanup();
+            it.remove();
+        }
+    }
+
+    // Tile keys covering the far square around chunk (pcx, pcz) minus the loaded square, nearest first
+    public static void selectTiles(int pcx, int pcz, int renderDist, int farDist, List<Long> out) {
+        out.clear();
+        if (farDist <= renderDist) return;
+        Selection s = new Selection(pcx, pcz, renderDist, farDist);
+        int top = FarTile.size(FarTile.MAX_LEVEL);
+        for (int tx = Math.floorDiv(s.farMinX, top); tx <= Math.floorDiv(s.farMaxX - 1, top); tx++) {
+            for (int tz = Math.floorDiv(s.farMinZ, top); tz <= Math.floorDiv(s.farMaxZ - 1, top); tz++) {
+                s.select(FarTile.MAX_LEVEL, tx, tz, out);
+            }
+        }
+        out.sort(Comparator.comparingInt(s::distance));
+    }
+
+    private static class Selection {
+        final int centreX, centreZ, lodBase;
+        final int loadMinX, loadMinZ, loadMaxX, loadMaxZ; // blocks, max exclusive
+        final int farMinX, farMinZ, farMaxX, farMaxZ;
+
+        Selection(int pcx, int pcz, int renderDist, int farDist) {
+            centreX = pcx * Chunk.SIZE + Chunk.SIZE / 2;
+            centreZ = pcz * Chunk.SIZE + Chunk.SIZE / 2;
+            lodBase = Math.max(renderDist, 8) * Chunk.SIZE / 2;
+            loadMinX = (pcx - renderDist) * Chunk.SIZE; loadMaxX = (pcx + renderDist + 1) * Chunk.SIZE;
+            loadMinZ = (pcz - renderDist) * Chunk.SIZE; loadMaxZ = (pcz + renderDist + 1) * Chunk.SIZE;
+            farMinX = (pcx - farDist) * Chunk.SIZE; farMaxX = (pcx + farDist + 1) * Chunk.SIZE;
+            farMinZ = (pcz - farDist) * Chunk.SIZE; farMaxZ = (pcz + farDist + 1) * Chunk.SIZE;
+        }
+
+        void select(int level, int tx, int tz, List<Long> out) {
+            int size = FarTile.size(level);
+            int x0 = tx * size, z0 = tz * size, x1 = x0 + size, z1 = z0 + size;
+            if (x1 <= farMinX || x0 >= farMaxX || z1 <= farMinZ || z0 >= farMaxZ) return;
+            if (x0 >= loadMinX && x1 <= loadMaxX && z0 >= loadMinZ && z1 <= loadMaxZ) return;
+            if (level > FarTile.MIN_LEVEL && distance(x0, z0, x1, z1) < lodBase << (level - 1)) {
+                for (int i = 0; i < 4; i++) select(level - 1, tx * 2 + (i & 1), tz * 2 + (i >> 1), out);
+            } else {
+                out.add(FarTile.key(level, tx, tz));
+            }
+        }
+
+        int distance(long key) {
+            int size = FarTile.size(FarTile.level(key));
+            int x0 = FarTile.tileX(key) * size, z0 = FarTile.tileZ(key) * size;
+            return distance(x0, z0, x0 + size, z0 + size);
+        }
+
+        // Blocks from the centre to the nearest point of the rectangle, along the longer axis
+        int distance(int x0, int z0, int x1, int z1) {
+            int dx = Math.max(0, Math.max(x0 - centreX, centreX - x1));
+            int dz = Math.max(0, Math.max(z0 - centreZ, centreZ - z1));
+            return Math.max(dx, dz);
+        }
+    }
+
+    public String getStats() {
+        return String.format("%d tiles drawn, %d cached, %d building, %d built", tilesDrawn, cache.size(), building.size(), tilesBuilt);
+    }
+
+    public void cleanup() {
+        builder.shutdownNow();
+        for (FarTileMesh mesh : cache.values()) mesh.cleanup();
+        cache.clear();
+        FarTileMesh.cleanupShared();
+    }
+}
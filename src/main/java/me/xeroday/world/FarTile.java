@@ -0,0 +1,150 @@
+package me.xeroday.world;
+
+import me.xeroday.utils.PerlinNoise;
+
+/**
+ * A square of distant terrain as a coarse heightfield mesh, built from the same column height,
+ * biome and 3D noise functions as Chunk (Chunk.sampleColumn and Chunk.surfaceHeight) but without
+ * overhangs, caves or vegetation. CPU only, FarTileMesh uploads it.
+ *
+ * A tile is CELLS x CELLS cells of 2^level blocks (level 1 to 3, so 128, 256 or 512 blocks a side)
+ * and aligned to its own size, so four tiles of one level make up one tile of the next. The grid
+ * gets a skirt hanging down from its edges that hides the cracks between tiles of different levels.
+ *
+ * Packed 8 byte vertex, decoded in far.vert:
+ * word A: i(7) | j(7) | y(9)   (grid position along x and z, height from MIN_Y)
+ * word B: layer(8) | palette(8)   (as in ChunkVertex)
+ */
+public class FarTile {
+    public static final int MIN_LEVEL = 1, MAX_LEVEL = 3;
+    public static final int CELLS = 64, SAMPLES = CELLS + 1;
+    public static final int VERTEX_COUNT = SAMPLES * SAMPLES + 4 * SAMPLES;
+    private static final int HEIGHT_RANGE = Chunk.MAX_Y - Chunk.MIN_Y;
+    private static final float STEEP = 1.5f; // blocks of rise per block, stone above this
+    private static final int SURFACE_ITERATIONS = 2; // within 2 blocks of the chunk surface for ~97% of columns
+    private static final Biome[] BIOMES = Biome.values();
+
+    // Grid then skirts, shared by every tile; fits unsigned shorts
+    public static final short[] INDICES = buildIndices();
+
+    public final int level, tx, tz;
+    public final int originX, originZ, step;
+    public final int minY, maxY; // world heights, skirts included
+    final int[] vertices;        // 2 ints per vertex
+
+    private FarTile(int level, int tx, int tz, int[] vertices, int minY, int maxY) {
+        this.level = level; this.tx = tx; this.tz = tz;
+        this.step = 1 << level;
+        this.originX = tx * CELLS * step;
+        this.originZ = tz * CELLS * step;
+        this.vertices = vertices;
+        this.minY = minY; this.maxY = maxY;
+    }
+
+    public static int size(int level) { return CELLS << level; }
+
+    // Level in the top 2 bits, then tile x and z in 30 bits each
+    public static long key(int level, int tx, int tz) { return (long) level << 60 | (tx & 0x3FFFFFFFL) << 30 | (tz & 0x3FFFFFFFL); }
+    public static int level(long key) { return (int) (key >>> 60); }
+    public static int tileX(long key) { return (int) (key << 4 >> 34); }
+    public static int tileZ(long key) { return (int) (key << 34 >> 34); }
+    public long key() { return key(level, tx, tz); }
+
+    public static FarTile build(PerlinNoise noise, long key) { return build(noise, level(key), tileX(key), tileZ(key)); }
+
+    public static FarTile build(PerlinNoise noise, int level, int tx, int tz) {
+        int step = 1 << level;
+        int x0 = tx * CELLS * step, z0 = tz * CELLS * step;
+
+        // heights with a one sample border, so slopes on the edges match the next tile
+        int side = SAMPLES + 2;
+        float[] heights = new float[side * side];
+        byte[] biomes = new byte[side * side];
+        float[] shape = new float[2];
+        for (int j = 0; j < side; j++) {
+            for (int i = 0; i < side; i++) {
+                int wx = x0 + (i - 1) * step, wz = z0 + (j - 1) * step;
+                Chunk.sampleColumn(noise, wx, wz, shape);
+                heights[j * side + i] = Chunk.surfaceHeight(noise, wx, wz, shape[0], SURFACE_ITERATIONS);
+                biomes[j * side + i] = (byte) shape[1];
+            }
+        }
+
+        int[] vertices = new int[VERTEX_COUNT * 2];
+        Block[] blocks = new Block[SAMPLES * SAMPLES];
+        int minY = Integer.MAX_VALUE, maxY = Integer.MIN_VALUE;
+        for (int j = 0; j < SAMPLES; j++) {
+            for (int i = 0; i < SAMPLES; i++) {
+                int s = (j + 1) * side + i + 1;
+                float h = heights[s];
+                float slope = Math.max(
+                        Math.max(Math.abs(heights[s + 1] - h), Math.abs(heights[s - 1] - h)),
+                        Math.max(Math.abs(heights[s + side] - h), Math.abs(heights[s - side] - h))) / step;
+
+                Biome biome = BIOMES[biomes[s]];
+                boolean water = h < Chunk.SEA_LEVEL;
+                boolean steep = !water && slope > STEEP;
+                Block block = water ? Block.WATER : steep ? (biome == Biome.DESERT ? Block.SAND : Block.STONE) : biome.topBlock;
+                int top = water ? Chunk.SEA_LEVEL + 1 : (int) Math.floor(h) + 1;
+                int y = Math.max(0, Math.min(HEIGHT_RANGE - 1, top - Chunk.MIN_Y));
+                int face = steep ? 2 : 0; // side shade on cliffs
+
+                int v = j * SAMPLES + i;
+                blocks[v] = block;
+                vertices[v * 2] = pack(i, j, y);
+                vertices[v * 2 + 1] = ChunkVertex.packB(block.top, ChunkVertex.paletteIndex(block, face));
+                minY = Math.min(minY, y);
+                maxY = Math.max(maxY, y);
+            }
+        }
+
+        // skirts: a copy of each edge, lowered, with the side texture
+        int skirt = 2 * step + 2;
+        for (int e = 0; e < 4; e++) {
+            for (int k = 0; k < SAMPLES; k++) {
+                int edge = edgeVertex(e, k);
+                int a = vertices[edge * 2];
+                int y = Math.max(0, ((a >>> 14) & 511) - skirt);
+                int v = SAMPLES * SAMPLES + e * SAMPLES + k;
+                vertices[v * 2] = pack(a & 127, (a >>> 7) & 127, y);
+                vertices[v * 2 + 1] = ChunkVertex.packB(blocks[edge].side, ChunkVertex.paletteIndex(blocks[edge], 2));
+                minY = Math.min(minY, y);
+            }
+        }
+        return new FarTile(level, tx, tz, vertices, minY + Chunk.MIN_Y, maxY + Chunk.MIN_Y);
+    }
+
+    private static int pack(int i, int j, int y) { return (i & 127) | (j & 127) << 7 | (y & 511) << 14; }
+
+    // Grid vertex k along edge e: 0 = z min, 1 = z max, 2 = x min, 3 = x max
+    private static int edgeVertex(int e, int k) {
+        return switch (e) {
+            case 0 -> k;
+            case 1 -> CELLS * SAMPLES + k;
+            case 2 -> k * SAMPLES;
+            default -> k * SAMPLES + CELLS;
+        };
+    }
+
+    private static short[] buildIndices() {
+        short[] indices = new short[(CELLS * CELLS + 4 * CELLS) * 6];
+        int n = 0;
+        for (int j = 0; j < CELLS; j++) {
+            for (int i = 0; i < CELLS; i++) {
+                int v00 = j * SAMPLES + i, v10 = v00 + 1, v01 = v00 + SAMPLES, v11 = v01 + 1;
+                n = quad(indices, n, v00, v10, v11, v01);
+            }
+        }
+        for (int e = 0; e < 4; e++) {
+            int base = SAMPLES * SAMPLES + e * SAMPLES;
+            for (int k = 0; k < CELLS; k++) n = quad(indices, n, edgeVertex(e, k), edgeVertex(e, k + 1), base + k + 1, base + k);
+        }
+        return indices;
+    }
+
+    private static int quad(short[] indices, int n, int a, int b, int c, int d) {
+        indices[n++] = (short) a; indices[n++] = (short) b; indices[n++] = (short) c;
+        indices[n++] = (short) a; indices[n++] = (short) c; indices[n++] = (short) d;
+        return n;
+    }
+}
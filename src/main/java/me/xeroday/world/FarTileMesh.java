@@ -0,0 +1,53 @@
+package me.xeroday.world;
+
+import static org.lwjgl.opengl.GL33.*;
+
+/**
+ * GL side of a FarTile: its own VAO and VBO with the packed vertices, drawn with the index buffer
+ * every tile shares (FarTile.INDICES). Render thread only.
+ */
+public class FarTileMesh {
+    private static final int VERTEX_BYTES = 8;
+    private static int sharedEbo;
+
+    final FarTile tile;
+    private final int vao, vbo;
+
+    FarTileMesh(FarTile tile) {
+        this.tile = tile;
+        if (sharedEbo == 0) {
+            sharedEbo = glGenBuffers();
+            glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, sharedEbo);
+            glBufferData(GL_ELEMENT_ARRAY_BUFFER, FarTile.INDICES, GL_STATIC_DRAW);
+            glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, 0);
+        }
+        vao = glGenVertexArrays();
+        vbo = glGenBuffers();
+        glBindVertexArray(vao);
+        glBindBuffer(GL_ARRAY_BUFFER, vbo);
+        glBufferData(GL_ARRAY_BUFFER, tile.vertices, GL_STATIC_DRAW);
+        glVertexAttribIPointer(0, 2, GL_UNSIGNED_INT, VERTEX_BYTES, 0);
+        glEnableVertexAttribArray(0);
+        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, sharedEbo); // part of the VAO state
+        glBindVertexArray(0);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+    }
+
+    static int bytes() { return FarTile.VERTEX_COUNT * VERTEX_BYTES; }
+
+    void draw() {
+        glBindVertexArray(vao);
+        glDrawElements(GL_TRIANGLES, FarTile.INDICES.length, GL_UNSIGNED_SHORT, 0);
+    }
+
+    void cleanup() {
+        glDeleteBuffers(vbo);
+        glDeleteVertexArrays(vao);
+    }
+
+    static void cleanupShared() {
+        if (sharedEbo == 0) return;
+        glDeleteBuffers(sharedEbo);
+        sharedEbo = 0;
+    }
+}
@@ -0,0 +1,148 @@
+package me.xeroday.world;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * One file holding a 32x32 area of chunks.
+ *
+ * The file is a 4 KB header of 1024 ints (first sector << 8 | sector count, 0 = not stored)
+ * followed by 4 KB sectors. A stored chunk is its compressed length, a compression byte and
+ * the deflated payload, padded to whole sectors. Every write takes the first free run (or grows
+ * the file) and never the chunk's current sectors: the payload goes there first, then the header
+ * entry is switched, and only then are the old sectors freed. The game dying mid-write leaves the
+ * old copy reachable (nothing is fsynced, so a power loss can still reorder the two writes).
+ *
+ * Reads go through a read-only mapping of the file, writes through the channel.
+ */
+public class RegionFile implements Closeable {
+    public static final int SIZE = 32;
+    private static final int SECTOR = 4096;
+    private static final int MAX_SECTORS = 255;
+    private static final byte COMPRESSION_DEFLATE = 1;
+
+    private final FileChannel channel;
+    private final int[] offsets = new int[SIZE * SIZE];
+    private final BitSet usedSectors = new BitSet();
+    private MappedByteBuffer mapped;
+
+    public RegionFile(Path path) throws IOException {
+        channel = FileChannel.open(path, READ, WRITE, CREATE);
+        if (channel.size() < SECTOR) channel.write(ByteBuffer.allocate(SECTOR), 0);
+
+        ByteBuffer header = ByteBuffer.allocate(SECTOR);
+        channel.read(header, 0);
+        header.flip();
+        usedSectors.set(0);
+        for (int i = 0; i < offsets.length; i++) {
+            int offset = header.getInt();
+            offsets[i] = offset;
+            if (offset != 0) usedSectors.set(offset >>> 8, (offset >>> 8) + (offset & 255));
+        }
+    }
+
+    public synchronized boolean contains(int localX, int localZ) { return offsets[index(localX, localZ)] != 0; }
+
+    // Decompressed payload, or null if the chunk was never written
+    public synchronized byte[] read(int localX, int localZ) throws IOException {
+        int offset = offsets[index(localX, localZ)];
+        if (offset == 0) return null;
+        long start = (long) (offset >>> 8) * SECTOR;
+        int capacity = (offset & 255) * SECTOR;
+        if (mapped == null || mapped.capacity() < start + capacity) mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+        ByteBuffer payload = mapped.duplicate();
+        payload.position((int) start);
+        int length = payload.getInt();
+        byte compression = payload.get();
+        if (compression != COMPRESSION_DEFLATE || length < 0 || length > capacity - 5) throw new IOException("Corrupt chunk at " + localX + ", " + localZ);
+        payload.limit(payload.position() + length);
+        return inflate(payload);
+    }
+
+    public synchronized void write(int localX, int localZ, byte[] data) throws IOException {
+        byte[] compressed = deflate(data);
+        int sectors = (compressed.length + 5 + SECTOR - 1) / SECTOR;
+        if (sectors > MAX_SECTORS) throw new IOException("Chunk too large for region file: " + compressed.length + " bytes");
+
+        int index = index(localX, localZ);
+        int old = offsets[index];
+        int start = findFree(sectors); // the old sectors are still marked used
+        usedSectors.set(start, start + sectors);
+
+        // payload first, header next, old sectors last, so a crash mid-write leaves the old copy reachable
+        ByteBuffer buffer = ByteBuffer.allocate(sectors * SECTOR);
+        buffer.putInt(compressed.length).put(COMPRESSION_DEFLATE).put(compressed).clear();
+        try {
+            writeFully(buffer, (long) start * SECTOR);
+            writeFully(ByteBuffer.allocate(4).putInt(0, start << 8 | sectors), index * 4L);
+        } catch (IOException e) {
+            usedSectors.clear(start, start + sectors);
+            throw e;
+        }
+        offsets[index] = start << 8 | sectors;
+        if (old != 0) usedSectors.clear(old >>> 8, (old >>> 8) + (old & 255));
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        mapped = null;
+        channel.close();
+    }
+
+    private int findFree(int count) {
+        int start = usedSectors.nextClearBit(1);
+        while (true) {
+            int nextUsed = usedSectors.nextSetBit(start);
+            if (nextUsed < 0 || nextUsed - start >= count) return start;
+            start = usedSectors.nextClearBit(nextUsed);
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) position += channel.write(buffer, position);
+    }
+
+    private static int index(int localX, int localZ) { return (localZ & (SIZE - 1)) * SIZE + (localX & (SIZE - 1)); }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        deflater.setInput(data);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+        byte[] chunk = new byte[8192];
+        while (!deflater.finished()) out.write(chunk, 0, deflater.deflate(chunk));
+        deflater.end();
+        return out.toByteArray();
+    }
+
+    private static byte[] inflate(ByteBuffer compressed) throws IOException {
+        Inflater inflater = new Inflater();
+        inflater.setInput(compressed);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.remaining() * 4);
+        byte[] chunk = new byte[8192];
+        try {
+            while (!inflater.finished()) {
+                int n = inflater.inflate(chunk);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) throw new IOException("Truncated chunk payload");
+                out.write(chunk, 0, n);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt chunk payload", e);
+        } finally {
+            inflater.end();
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,92 @@
+package me.xeroday.world;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.List;
+
+/**
+ * Adaptive render distance (-Dxylo.adaptiveRenderDistance=true), fed once a frame by the render
+ * loop and free of any GL or World state, so RenderDistanceControllerTest can drive it with made
+ * up timings.
+ *
+ * Frame time is smoothed over roughly 20 frames. The distance shrinks a step when frames run 20%
+ * over -Dxylo.targetFrameMs (default 16.7), and by an eighth at once when less than 10% of the heap
+ * is left. It grows by one when frames are 15% under target, 30% of the heap is free and the
+ * generation backlog is down to about one ring, so it never runs ahead of the chunks that are
+ * still coming in. Changes are spaced out (2 s for shrinking, 5 s for growing) to let the loaded
+ * area catch up before the next decision.
+ */
+public class RenderDistanceController {
+    public static boolean ENABLED = Boolean.parseBoolean(System.getProperty("xylo.adaptiveRenderDistance", "false"));
+    public static float TARGET_FRAME_MS = Float.parseFloat(System.getProperty("xylo.targetFrameMs", "16.7"));
+
+    private static final float SMOOTHING = 0.05f;
+    private static final float SLOW = 1.2f, FAST = 0.85f;
+    private static final float HEAP_LOW = 0.10f, HEAP_GROW = 0.30f;
+    private static final long SHRINK_COOLDOWN = 2_000_000_000L, GROW_COOLDOWN = 5_000_000_000L;
+    private static final long HEAP_COOLDOWN = 500_000_000L;
+
+    private static final List<MemoryPoolMXBean> HEAP_POOLS = ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP).toList();
+
+    private final int min, max;
+    private final float targetMillis;
+    private int distance;
+    private float smoothedMillis = -1;
+    private long lastChange = Long.MIN_VALUE / 2;
+    private String reason = "start";
+
+    public RenderDistanceController(int distance, int min, int max) {
+        this(distance, min, max, TARGET_FRAME_MS);
+    }
+
+    public RenderDistanceController(int distance, int min, int max, float targetMillis) {
+        this.min = min;
+        this.max = max;
+        this.targetMillis = targetMillis;
+        this.distance = Math.max(min, Math.min(max, distance));
+    }
+
+    // One frame: its time, chunks still queued for generation and the free fraction of the heap
+    public int update(long nowNanos, float frameMillis, int genBacklog, float heapFree) {
+        smoothedMillis = smoothedMillis < 0 ? frameMillis : smoothedMillis + SMOOTHING * (frameMillis - smoothedMillis);
+        long since = nowNanos - lastChange;
+
+        if (heapFree < HEAP_LOW && since >= HEAP_COOLDOWN && distance > min) {
+            change(nowNanos, distance - Math.max(1, distance / 8), "heap");
+        } else if (smoothedMillis > targetMillis * SLOW && since >= SHRINK_COOLDOWN && distance > min) {
+            change(nowNanos, distance - 1, "frame time");
+        } else if (smoothedMillis < targetMillis * FAST && heapFree > HEAP_GROW && genBacklog <= 8 * distance
+                && since >= GROW_COOLDOWN && distance < max) {
+            change(nowNanos, distance + 1, "headroom");
+        }
+        return distance;
+    }
+
+    // A manual change, the controller carries on from there
+    public void setDistance(long nowNanos, int distance) { change(nowNanos, distance, "manual"); }
+
+    public int getDistance() { return distance; }
+    public float getSmoothedMillis() { return smoothedMillis; }
+
+    public String getStats() { return String.format("%d, %.1f ms smoothed, last change: %s", distance, smoothedMillis, reason); }
+
+    // Fraction of the maximum heap not live, using each pool's size after its last collection so
+    // garbage waiting for the next GC doesn't count
+    public static float heapFree() {
+        long used = 0;
+        for (MemoryPoolMXBean pool : HEAP_POOLS) {
+            MemoryUsage afterGc = pool.getCollectionUsage();
+            used += afterGc != null ? afterGc.getUsed() : pool.getUsage().getUsed();
+        }
+        return 1 - (float) used / Runtime.getRuntime().maxMemory();
+    }
+
+    private void change(long nowNanos, int distance, String reason) {
+        this.distance = Math.max(min, Math.min(max, distance));
+        this.lastChange = nowNanos;
+        this.reason = reason;
+    }
+}
@@ -0,0 +1,113 @@
+package me.xeroday.world;
+
+import org.joml.FrustumIntersection;
+
+import java.util.List;
+
+/**
+ * Picks the 16x16x16 sections to draw each frame (render thread).
+ *
+ * A breadth first walk starts at the camera's section and steps into a neighbour only if that
+ * neighbour is inside the frustum, the walk never turns back towards the camera, and the current
+ * section connects the face it was entered through with the face it leaves by (SectionVisibility).
+ * Sections without a mesh yet count as open. The walk runs near to far, so the chunk list comes
+ * out front to back. With -Dxylo.occlusion=false, or the camera above or below the world, every
+ * section in the frustum is drawn. Either way only chunks World.isDrawn are drawn.
+ */
+public class SectionCuller {
+    public static boolean OCCLUSION = Boolean.parseBoolean(System.getProperty("xylo.occlusion", "true"));
+
+    private static final int SECTIONS = Chunk.SECTION_COUNT;
+    private static final int[][] DIRS = { {0,1,0}, {0,-1,0}, {0,0,1}, {0,0,-1}, {1,0,0}, {-1,0,0} };
+
+    private int radius = -1, side;
+    private int[] visited; // frame stamp per section of the (2 * radius + 1)^2 column area
+    private int[] queue;
+    private int frame;
+
+    // METRICS
+    private int sectionsVisited, sectionsDrawn;
+
+    // Fills out with the chunks that have something visible, each with its visibleSections mask set
+    public List<Chunk> cull(World world, FrustumIntersection frustum, float camX, float camY, float camZ, List<Chunk> out) {
+        frame++;
+        out.clear();
+        sectionsVisited = 0; sectionsDrawn = 0;
+        int ccx = Math.floorDiv((int) Math.floor(camX), Chunk.SIZE), ccz = Math.floorDiv((int) Math.floor(camZ), Chunk.SIZE);
+        int csy = Math.floorDiv((int) Math.floor(camY) - Chunk.MIN_Y, 16);
+        if (!OCCLUSION || csy < 0 || csy >= SECTIONS) return cullFrustumOnly(world, frustum, ccx, ccz, out);
+
+        int r = world.getUnloadDistance();
+        if (r != radius) {
+            radius = r;
+            side = 2 * r + 1;
+            visited = new int[side * side * SECTIONS];
+            queue = new int[side * side * SECTIONS];
+        }
+
+        int head = 0, tail = 0;
+        visited[node(r, r, csy)] = frame;
+        queue[tail++] = pack(r, r, csy, 6, 0);
+        while (head < tail) {
+            int packed = queue[head++];
+            int x = packed & 255, z = (packed >>> 8) & 255, sy = (packed >>> 16) & 31;
+            int entry = (packed >>> 21) & 7, dirs = packed >>> 24;
+            sectionsVisited++;
+
+            Chunk c = world.getChunk(ccx + x - r, ccz + z - r);
+            ChunkMesh mesh = c != null ? c.mesh : null;
+            if (mesh != null) markVisible(c, mesh, sy, out);
+            long visibility = mesh != null ? mesh.visibility[sy] : SectionVisibility.ALL;
+
+            for (int d = 0; d < 6; d++) {
+                if ((dirs & 1 << (d ^ 1)) != 0) continue; // back towards the camera
+                if (entry != 6 && !SectionVisibility.connected(visibility, entry, d)) continue;
+                int nx = x + DIRS[d][0], ny = sy + DIRS[d][1], nz = z + DIRS[d][2];
+                if (nx < 0 || nx >= side || nz < 0 || nz >= side || ny < 0 || ny >= SECTIONS) continue;
+                int n = node(nx, nz, ny);
+                if (visited[n] == frame) continue;
+                if (!world.isDrawn(ccx + nx - r, ccz + nz - r)) continue; // it never turns back, so nothing past the edge leads back in
+                if (!inFrustum(frustum, ccx + nx - r, ny, ccz + nz - r)) continue;
+                visited[n] = frame;
+                queue[tail++] = pack(nx, nz, ny, d ^ 1, dirs | 1 << d);
+            }
+        }
+        return out;
+    }
+
+    public String getStats() { return String.format("%d sections walked, %d drawn", sectionsVisited, sectionsDrawn); }
+
+    private List<Chunk> cullFrustumOnly(World world, FrustumIntersection frustum, int ccx, int ccz, List<Chunk> out) {
+        List<Chunk> chunks = world.getLoadedChunks(); // a snapshot
+        chunks.sort((a, b) -> Integer.compare(distSq(a, ccx, ccz), distSq(b, ccx, ccz)));
+        for (Chunk c : chunks) {
+            ChunkMesh mesh = c.mesh;
+            if (mesh == null || !world.isDrawn(c.cx, c.cz)) continue;
+            if (!frustum.testAab(c.cx * Chunk.SIZE, Chunk.MIN_Y, c.cz * Chunk.SIZE, c.cx * Chunk.SIZE + Chunk.SIZE, Chunk.MAX_Y, c.cz * Chunk.SIZE + Chunk.SIZE)) continue;
+            for (int sy = 0; sy < SECTIONS; sy++) {
+                sectionsVisited++;
+                if (inFrustum(frustum, c.cx, sy, c.cz)) markVisible(c, mesh, sy, out);
+            }
+        }
+        return out;
+    }
+
+    private void markVisible(Chunk c, ChunkMesh mesh, int sy, List<Chunk> out) {
+        if (mesh.visibleFrame != frame) {
+            mesh.visibleFrame = frame;
+            mesh.visibleSections = 0;
+            out.add(c);
+        }
+        mesh.visibleSections |= 1 << sy;
+        sectionsDrawn++;
+    }
+
+    private static boolean inFrustum(FrustumIntersection frustum, int cx, int sy, int cz) {
+        int y = Chunk.MIN_Y + sy * 16;
+        return frustum.testAab(cx * Chunk.SIZE, y, cz * Chunk.SIZE, cx * Chunk.SIZE + Chunk.SIZE, y + 16, cz * Chunk.SIZE + Chunk.SIZE);
+    }
+
+    private static int distSq(Chunk c, int ccx, int ccz) { int dx = c.cx - ccx, dz = c.cz - ccz; return dx * dx + dz * dz; }
+    private int node(int x, int z, int sy) { return (z * side + x) * SECTIONS + sy; }
+    private static int pack(int x, int z, int sy, int entry, int dirs) { return x | z << 8 | sy << 16 | entry << 21 | dirs << 24; }
+}
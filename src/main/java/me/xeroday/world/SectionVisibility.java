@@ -0,0 +1,68 @@
+package me.xeroday.world;
+
+import me.xeroday.utils.ScratchPool;
+
+/**
+ * Which faces of a 16x16x16 section can see each other through non-opaque blocks, computed while
+ * meshing and used by SectionCuller to skip sections hidden behind solid terrain.
+ *
+ * The result is a 36 bit set, bit from * 6 + to, with faces numbered like Chunk's FACE_DIRS:
+ * 0 up, 1 down, 2 +z, 3 -z, 4 +x, 5 -x (so d ^ 1 is the opposite face).
+ */
+public class SectionVisibility {
+    public static final long ALL = (1L << 36) - 1;
+    public static final long NONE = 0;
+
+    private static final int VOLUME = 16 * 16 * 16;
+    private static final boolean[] OPAQUE = new boolean[128];
+    static {
+        for (int id = 0; id < OPAQUE.length; id++) OPAQUE[id] = Block.get((byte) id).opaque;
+    }
+    private static final ScratchPool<int[]> STACK = new ScratchPool<>(() -> new int[VOLUME], ChunkScheduler.DEFAULT_THREADS);
+    private static final ScratchPool<boolean[]> VISITED = new ScratchPool<>(() -> new boolean[VOLUME], ChunkScheduler.DEFAULT_THREADS);
+
+    public static boolean connected(long visibility, int from, int to) { return (visibility >>> (from * 6 + to) & 1) != 0; }
+
+    // blocks is a flat y-major array (index (y << 8) | (z << 4) | x), the section starts at offset
+    public static long compute(byte[] blocks, int offset) {
+        int open = 0;
+        for (int i = 0; i < VOLUME; i++) if (!OPAQUE[blocks[offset + i] & 127]) open++;
+        if (open == VOLUME) return ALL;
+        if (open == 0) return NONE;
+
+        boolean[] visited = VISITED.get();
+        int[] stack = STACK.get();
+        long visibility = floodFill(blocks, offset, visited, stack);
+        VISITED.release(visited);
+        STACK.release(stack);
+        return visibility;
+    }
+
+    // Every open region links all the faces it touches
+    private static long floodFill(byte[] blocks, int offset, boolean[] visited, int[] stack) {
+        for (int i = 0; i < VOLUME; i++) visited[i] = OPAQUE[blocks[offset + i] & 127];
+        long visibility = 0;
+        for (int start = 0; start < VOLUME; start++) {
+            if (visited[start]) continue;
+            int faces = 0, top = 0;
+            visited[start] = true;
+            stack[top++] = start;
+            while (top > 0) {
+                int i = stack[--top];
+                int x = i & 15, z = (i >> 4) & 15, y = i >> 8;
+                if (y == 15) faces |= 1; else if (!visited[i + 256]) { visited[i + 256] = true; stack[top++] = i + 256; }
+                if (y == 0) faces |= 2; else if (!visited[i - 256]) { visited[i - 256] = true; stack[top++] = i - 256; }
+                if (z == 15) faces |= 4; else if (!visited[i + 16]) { visited[i + 16] = true; stack[top++] = i + 16; }
+                if (z == 0) faces |= 8; else if (!visited[i - 16]) { visited[i - 16] = true; stack[top++] = i - 16; }
+                if (x == 15) faces |= 16; else if (!visited[i + 1]) { visited[i + 1] = true; stack[top++] = i + 1; }
+                if (x == 0) faces |= 32; else if (!visited[i - 1]) { visited[i - 1] = true; stack[top++] = i - 1; }
+            }
+            for (int from = 0; from < 6; from++) {
+                if ((faces & 1 << from) == 0) continue;
+                for (int to = 0; to < 6; to++) if ((faces & 1 << to) != 0) visibility |= 1L << (from * 6 + to);
+            }
+            if (visibility == ALL) break;
+        }
+        return visibility;
+    }
+}
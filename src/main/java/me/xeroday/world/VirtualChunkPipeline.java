@@ -0,0 +1,157 @@
+package me.xeroday.world;
+
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Alternative to ChunkScheduler (-Dxylo.pipeline=virtual): every requested chunk gets one virtual
+ * thread that runs its whole lifecycle in order, load or generate -> hand over to the render thread
+ * -> wait for the neighbours that are going to load -> mesh.
+ *
+ * Blocking is free on a virtual thread, so only the CPU heavy stages take a permit from a semaphore
+ * sized like the scheduler's pool. A task whose chunk leaves the player's range stops at the next
+ * stage boundary. Nothing is interrupted, region file channels would close on interrupt.
+ */
+class VirtualChunkPipeline {
+    private volatile int range;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore cpu = new Semaphore(ChunkScheduler.DEFAULT_THREADS);
+    private final Map<Long, Task> tasks = new ConcurrentHashMap<>();
+
+    // signalled when chunks are registered, the player moves or tasks are cancelled
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private volatile int playerX, playerZ;
+    private volatile boolean running = true;
+
+    // METRICS
+    private final AtomicLong started = new AtomicLong(), completed = new AtomicLong(), cancelled = new AtomicLong();
+    private final AtomicLong waiting = new AtomicLong(), remeshes = new AtomicLong();
+
+    private static class Task {
+        final int cx, cz;
+        volatile boolean cancelled;
+        Task(int cx, int cz) { this.cx = cx; this.cz = cz; }
+    }
+
+    // The world is passed with every request, like the scheduler's jobs capture it
+    VirtualChunkPipeline(int range) {
+        this.range = range;
+    }
+
+    void request(World world, int cx, int cz) {
+        Task task = new Task(cx, cz);
+        tasks.put(key(cx, cz), task);
+        started.incrementAndGet();
+        executor.execute(() -> run(world, task));
+    }
+
+    // Remesh of an already meshed chunk (neighbour arrived), coalesced through Chunk.requestMesh
+    boolean remesh(World world, Chunk c) {
+        if (!c.requestMesh()) return false;
+        remeshes.incrementAndGet();
+        executor.execute(() -> {
+            c.takeMeshRequest();
+            try {
+                if (!inRange(c.cx, c.cz) || !acquire()) return;
+                try { c.computeMesh(world); } finally { cpu.release(); }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+        return true;
+    }
+
+    // Cancels tasks that fell out of range and wakes the ones waiting on neighbours
+    void updatePlayer(int cx, int cz) {
+        boolean moved = cx != playerX || cz != playerZ;
+        playerX = cx; playerZ = cz;
+        if (moved) cancelOutOfRange();
+    }
+
+    // New render distance
+    void setRange(int range) {
+        this.range = range;
+        cancelOutOfRange();
+    }
+
+    private void cancelOutOfRange() {
+        for (Task task : tasks.values()) if (!inRange(task.cx, task.cz)) task.cancelled = true;
+        signal();
+    }
+
+    void signal() {
+        lock.lock();
+        try { changed.signalAll(); } finally { lock.unlock(); }
+    }
+
+    void shutdown() {
+        running = false;
+        for (Task task : tasks.values()) task.cancelled = true;
+        signal();
+        executor.shutdown();
+    }
+
+    // Tasks that have not handed their chunk over yet (roughly, meshing ones count too)
+    int getPending() { return Math.max(0, tasks.size() - (int) waiting.get()); }
+
+    String getStats() {
+        return String.format("virtual: %d tasks (%d waiting), %d done, %d cancelled, %d remeshes",
+                tasks.size(), waiting.get(), completed.get(), cancelled.get(), remeshes.get());
+    }
+
+    private void run(World world, Task task) {
+        int x = task.cx, z = task.cz;
+        Chunk c = null;
+        boolean handedOver = false;
+        try {
+            // 1. load or generate
+            if (task.cancelled || !acquire()) return;
+            try { c = world.loadOrGenerate(x, z); } finally { cpu.release(); }
+            if (task.cancelled) return;
+
+            // 2. register on the render thread, then 3. wait until the neighbours are in
+            world.handOver(c);
+            handedOver = true;
+            waiting.incrementAndGet();
+            try {
+                lock.lock();
+                try {
+                    while (!task.cancelled && !(world.getChunk(x, z) == c && world.neighboursReady(c, playerX, playerZ))) {
+                        changed.await(250, TimeUnit.MILLISECONDS);
+                    }
+                } finally { lock.unlock(); }
+            } finally { waiting.decrementAndGet(); }
+            if (task.cancelled) return;
+
+            // 4. mesh, the render thread uploads it
+            c.requestMesh();
+            c.takeMeshRequest();
+            if (!acquire()) return;
+            try { c.computeMesh(world); } finally { cpu.release(); }
+            completed.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            tasks.remove(key(x, z), task);
+            if (task.cancelled) cancelled.incrementAndGet();
+            if (!handedOver) world.dropLoading(x, z, c);
+        }
+    }
+
+    private boolean acquire() throws InterruptedException {
+        if (!running) return false;
+        cpu.acquire();
+        return true;
+    }
+
+    private boolean inRange(int cx, int cz) { return Math.abs(cx - playerX) <= range && Math.abs(cz - playerZ) <= range; }
+    private static long key(int x, int z) { return ((long) x << 32) | (z & 0xFFFFFFFFL); }
+}
@@ -7,49 +7,151 @@ import org.joml.FrustumIntersection;
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.lwjgl.opengl.GL33.*;
 
 public class World {
-    private final Map<Long, Chunk> chunkMap = new ConcurrentHashMap<>();
-    private final Set<Long> loadingChunks = Collections.synchronizedSet(new HashSet<>());
+    // Chunks load within renderDist of the player (-Dxylo.renderDistance, or setRenderDistance at runtime)
+    // and unload beyond unloadDist
+    public static int RENDER_DISTANCE = Integer.getInteger("xylo.renderDistance", 16);
+    public static final int MIN_RENDER_DISTANCE = 2, MAX_RENDER_DISTANCE = 64;
+    private volatile int renderDist = Math.max(MIN_RENDER_DISTANCE, Math.min(MAX_RENDER_DISTANCE, RENDER_DISTANCE));
+    private volatile int unloadDist = unloadDistance(renderDist);
+    private final ChunkIndex chunks = new ChunkIndex(unloadDistance(MAX_RENDER_DISTANCE)); // loaded and loading chunks
     private final Queue<Chunk> chunksToRegister = new ConcurrentLinkedQueue<>();
-    private final List<int[]> sortedOffsets = new ArrayList<>();
+    private List<int[]> sortedOffsets;
 
+    private final int seed;
     private final PerlinNoise noise;
-    private final int renderDist = 16;
+    private final ChunkStorage storage; // null = nothing is saved
 
     // SCALES
     private static final float SCALE_TEMP = 0.0012f;
     private static final float SCALE_HUMIDITY = 0.0012f;
     private static final float SCALE_CONTINENT = 0.0018f;
 
-    private final ExecutorService genExecutor = Executors.newFixedThreadPool(4);
-    private final ExecutorService meshExecutor = Executors.newFixedThreadPool(2);
+    // PIPELINE
+    // SCHEDULER: prioritised worker pool, VIRTUAL: one virtual thread per chunk (-Dxylo.pipeline=virtual)
+    public enum Pipeline { SCHEDULER, VIRTUAL }
+    public static final Pipeline DEFAULT_PIPELINE = Pipeline.valueOf(System.getProperty("xylo.pipeline", "scheduler").toUpperCase());
+    private final Pipeline pipeline;
+    private final ChunkScheduler scheduler; // SCHEDULER only
+    private final VirtualChunkPipeline virtualPipeline; // VIRTUAL only
+
+    // REMESH QUEUE
+    // New chunks wait in awaitingNeighbours until every neighbour that is going to load is present,
+    // so their first mesh already sees the borders. Remesh requests made during a frame are
+    // collected in remeshBatch and flushed once per chunk, and a chunk that already has a job
+    // waiting to start is not queued again. meshJobsSaved counts the jobs this avoided compared
+    // with meshing once on load plus once per neighbour arrival.
+    private final Set<Chunk> remeshBatch = new LinkedHashSet<>();
+    private final Set<Chunk> awaitingNeighbours = new HashSet<>();
+    private final AtomicLong meshRequests = new AtomicLong();
+    private final AtomicLong meshJobs = new AtomicLong();
     private final FrustumIntersection frustum = new FrustumIntersection();
+    private final ChunkUploadQueue uploads = new ChunkUploadQueue();
+    private final SectionCuller culler = new SectionCuller();
+    private final List<Chunk> visibleChunks = new ArrayList<>();
+    private FarTerrain farTerrain; // created with the first render, so headless worlds start no threads
+
+    // Chunks within this many chunks of the player are generated with their columns split over a
+    // fork-join pool, so spawn and teleports show terrain sooner (-Dxylo.parallelGenRadius, 0 = off)
+    public static int PARALLEL_GEN_RADIUS = Integer.getInteger("xylo.parallelGenRadius", 0);
+    private volatile int playerChunkX, playerChunkZ;
 
-    private volatile int playerChunkX = 0;
-    private volatile int playerChunkZ = 0;
+    // LOAD RING
+    // Loads and unloads are worked out only when the player changes chunk, from the strips of the
+    // old and new squares that don't overlap. Every loaded chunk stays within unloadDist of
+    // (ringX, ringZ). missingCursor moves up to MISSING_CURSOR_STEPS entries a frame towards the
+    // first sortedOffsets entry not loaded yet, so a frame with everything in place costs one
+    // lookup; loads that failed or were dropped set retryLoads and are requested again from there.
+    private static final int MISSING_CURSOR_STEPS = 64;
+    private boolean ringSet;
+    private int ringX, ringZ;
+    private int missingCursor;
+    private volatile boolean retryLoads;
 
     public World() {
-        this.noise = new PerlinNoise(new Random().nextInt());
+        this(defaultSeed());
+    }
+
+    public World(int seed) {
+        this(seed, Paths.get(System.getProperty("xylo.saveDir", "saves")), DEFAULT_PIPELINE);
+    }
+
+    // Chunks are saved under saveDir/seed_<seed>, pass null to keep everything in memory
+    public World(int seed, Path saveDir) {
+        this(seed, saveDir, DEFAULT_PIPELINE);
+    }
+
+    public World(int seed, Path saveDir, Pipeline pipeline) {
+        this.pipeline = pipeline;
+        this.scheduler = pipeline == Pipeline.SCHEDULER ? new ChunkScheduler(unloadDist) : null;
+        this.virtualPipeline = pipeline == Pipeline.VIRTUAL ? new VirtualChunkPipeline(unloadDist) : null;
+        this.seed = seed;
+        this.noise = new PerlinNoise(seed);
+        this.storage = saveDir != null ? new ChunkStorage(saveDir.resolve("seed_" + seed)) : null;
+        this.sortedOffsets = sortedOffsets(renderDist);
+    }
 
+    private static List<int[]> sortedOffsets(int renderDist) {
+        List<int[]> offsets = new ArrayList<>();
         for (int x = -renderDist; x <= renderDist; x++) {
             for (int z = -renderDist; z <= renderDist; z++) {
-                sortedOffsets.add(new int[]{x, z});
+                offsets.add(new int[]{x, z});
             }
         }
-        sortedOffsets.sort((a, b) -> {
+        offsets.sort((a, b) -> {
             int distA = a[0] * a[0] + a[1] * a[1];
             int distB = b[0] * b[0] + b[1] * b[1];
             return Integer.compare(distA, distB);
         });
+        return offsets;
+    }
+
+    // The margin chunks get before unloading grows with the distance, 2 up to 16 then an eighth
+    static int unloadDistance(int renderDist) { return renderDist + Math.max(2, renderDist / 8); }
+
+    // Render thread. Chunks beyond the new unload distance go at once, new ones load from the next update
+    public void setRenderDistance(int distance) {
+        distance = Math.max(MIN_RENDER_DISTANCE, Math.min(MAX_RENDER_DISTANCE, distance));
+        if (distance == renderDist) return;
+        renderDist = distance;
+        unloadDist = unloadDistance(distance);
+        sortedOffsets = sortedOffsets(distance);
+        if (scheduler != null) scheduler.setRange(unloadDist);
+        else virtualPipeline.setRange(unloadDist);
+        if (ringSet) {
+            for (Chunk c : chunks.values()) {
+                if (Math.abs(c.cx - ringX) > unloadDist || Math.abs(c.cz - ringZ) > unloadDist) unload(c.cx, c.cz);
+            }
+        }
+        ringSet = false; // the whole new ring is requested, nearest first
+    }
+
+    // -Dxylo.seed (a number, or any text which is hashed), otherwise a random seed
+    public static int defaultSeed() {
+        String raw = System.getProperty("xylo.seed");
+        return raw != null ? parseSeed(raw) : new Random().nextInt();
     }
 
-    // This function is used by MapRenderer to predict biomes
+    public static int parseSeed(String raw) {
+        try {
+            return Integer.parseInt(raw.trim());
+        } catch (NumberFormatException e) {
+            return raw.hashCode();
+        }
+    }
+
+    // This function is used by MapRenderer to predict biomes, loaded chunks answer from their biome cache
     public Biome getBiomeAt(int x, int z) {
+        Chunk c = getChunk(Math.floorDiv(x, 16), Math.floorDiv(z, 16));
+        if (c != null) return c.getBiome(x & 15, z & 15);
         float continent = noise.getFBM(x, z, SCALE_CONTINENT, 3);
         float temp = noise.getFBM(x + 5000, z + 5000, SCALE_TEMP, 2);
         float humidity = noise.getFBM(x + 1000, z + 1000, SCALE_HUMIDITY, 2);
@@ -60,98 +162,225 @@ public class World {
         int cx = (int) Math.floor(cam.x / 16.0);
         int cz = (int) Math.floor(cam.z / 16.0);
 
-        this.playerChunkX = cx;
-        this.playerChunkZ = cz;
-
-        if (loadingChunks.size() < 16) {
-            for (int[] offset : sortedOffsets) {
-                if (loadingChunks.size() >= 16) break;
-
-                int x = cx + offset[0];
-                int z = cz + offset[1];
-                long key = getChunkKey(x, z);
-
-                if (!chunkMap.containsKey(key) && !loadingChunks.contains(key)) {
-                    loadingChunks.add(key);
-                    int finalX = x; int finalZ = z;
-
-                    genExecutor.submit(() -> {
-                        try {
-                            int dx = Math.abs(finalX - playerChunkX);
-                            int dz = Math.abs(finalZ - playerChunkZ);
-                            if (dx > renderDist + 2 || dz > renderDist + 2) {
-                                loadingChunks.remove(key);
-                                return;
-                            }
-
-                            Chunk c = new Chunk(finalX, finalZ, noise);
-                            meshExecutor.submit(() -> {
-                                c.computeMesh(this);
-                                chunksToRegister.add(c);
-                            });
-                        } catch (Exception e) {
-                            e.printStackTrace();
-                            loadingChunks.remove(key);
-                        }
-                    });
-                }
-            }
+        // the scheduler orders and drops queued work, so every missing chunk in range can be queued
+        playerChunkX = cx; playerChunkZ = cz;
+        double yaw = Math.toRadians(cam.yaw);
+        if (scheduler != null) scheduler.updatePlayer(cx, cz, (float) Math.sin(yaw), (float) -Math.cos(yaw));
+        else virtualPipeline.updatePlayer(cx, cz);
+
+        if (!ringSet || cx != ringX || cz != ringZ) moveRing(cx, cz);
+        if (retryLoads) {
+            retryLoads = false;
+            for (int i = missingCursor; i < sortedOffsets.size(); i++) requestLoad(cx + sortedOffsets.get(i)[0], cz + sortedOffsets.get(i)[1]);
+        }
+        for (int steps = 0; steps < MISSING_CURSOR_STEPS && missingCursor < sortedOffsets.size(); steps++) {
+            int[] offset = sortedOffsets.get(missingCursor);
+            if (!chunks.contains(cx + offset[0], cz + offset[1])) break;
+            missingCursor++;
         }
 
         Chunk c;
+        boolean registered = false;
         while ((c = chunksToRegister.poll()) != null) {
-            long key = getChunkKey(c.cx, c.cz);
-            chunkMap.put(key, c);
-            loadingChunks.remove(key);
+            if (Math.abs(c.cx - cx) > unloadDist || Math.abs(c.cz - cz) > unloadDist) {
+                // the player left while it loaded
+                chunks.clearLoading(c.cx, c.cz);
+                if (storage != null) storage.saveAsync(c);
+                continue;
+            }
+            chunks.put(c);
+            chunks.clearLoading(c.cx, c.cz);
+            if (scheduler != null) awaitingNeighbours.add(c);
+            else meshJobs.incrementAndGet(); // its task meshes it once the neighbours are in
+            meshRequests.incrementAndGet();
             refreshChunk(c.cx + 1, c.cz); refreshChunk(c.cx - 1, c.cz);
             refreshChunk(c.cx, c.cz + 1); refreshChunk(c.cx, c.cz - 1);
+            registered = true;
         }
+        if (registered && virtualPipeline != null) virtualPipeline.signal();
 
-        chunkMap.entrySet().removeIf(e -> {
-            Chunk chunk = e.getValue();
-            int dx = Math.abs(chunk.cx - cx);
-            int dz = Math.abs(chunk.cz - cz);
-            if (dx > renderDist + 2 || dz > renderDist + 2) {
-                chunk.cleanup();
-                return true;
+        // neighbours can also stop being expected when the player moves away
+        for (Iterator<Chunk> it = awaitingNeighbours.iterator(); it.hasNext(); ) {
+            Chunk waiting = it.next();
+            if (neighboursReady(waiting, cx, cz)) { it.remove(); remeshBatch.add(waiting); }
+        }
+        for (Chunk pending : remeshBatch) requestMesh(pending);
+        remeshBatch.clear();
+    }
+
+    // Unloads the strip the player left behind and requests the strip ahead, or everything after a jump
+    private void moveRing(int cx, int cz) {
+        boolean overlaps = ringSet && Math.abs(cx - ringX) <= 2 * renderDist && Math.abs(cz - ringZ) <= 2 * renderDist;
+        if (ringSet) forEachOutside(ringX, ringZ, cx, cz, unloadDist, this::unload);
+        if (overlaps) forEachOutside(cx, cz, ringX, ringZ, renderDist, this::requestLoad);
+        else for (int[] offset : sortedOffsets) requestLoad(cx + offset[0], cz + offset[1]); // nearest first
+        ringSet = true;
+        ringX = cx; ringZ = cz;
+        missingCursor = 0;
+    }
+
+    private interface ChunkVisitor { void visit(int x, int z); }
+
+    // Chunks within r of (x0, z0) but not within r of (x1, z1)
+    private static void forEachOutside(int x0, int z0, int x1, int z1, int r, ChunkVisitor visitor) {
+        for (int x = x0 - r; x <= x0 + r; x++) {
+            boolean column = Math.abs(x - x1) <= r; // the column crosses the other square, skip that part
+            for (int z = z0 - r; z <= z0 + r; z++) {
+                if (column && Math.abs(z - z1) <= r) { z = z1 + r; continue; }
+                visitor.visit(x, z);
             }
-            return false;
-        });
+        }
     }
 
-    private void refreshChunk(int cx, int cz) { Chunk c = chunkMap.get(getChunkKey(cx, cz)); if (c != null) meshExecutor.submit(() -> c.computeMesh(this)); }
-    public Chunk getChunk(int cx, int cz) { return chunkMap.get(getChunkKey(cx, cz)); }
-    private long getChunkKey(int x, int z) { return ((long)x << 32) | (z & 0xFFFFFFFFL); }
+    private void unload(int x, int z) {
+        Chunk chunk = chunks.remove(x, z);
+        if (chunk == null) return;
+        chunk.cleanup();
+        awaitingNeighbours.remove(chunk);
+        if (storage != null) storage.saveAsync(chunk);
+    }
 
-    public void render(Shader solid, Shader sGrass, Shader tGrass, Matrix4f viewProjMatrix, Vector3f camPos) {
-        frustum.set(viewProjMatrix);
-        List<Chunk> visibleChunks = new ArrayList<>();
-        for (Chunk ch : chunkMap.values()) {
-            if (frustum.testAab(ch.cx * 16, -64, ch.cz * 16, ch.cx * 16 + 16, 320, ch.cz * 16 + 16)) visibleChunks.add(ch);
+    private void requestLoad(int x, int z) {
+        if (chunks.contains(x, z) || !chunks.markLoading(x, z)) return;
+        if (virtualPipeline != null) { virtualPipeline.request(this, x, z); return; }
+        scheduler.submit(ChunkScheduler.Kind.GEN, x, z, () -> {
+            try {
+                handOver(loadOrGenerate(x, z));
+            } catch (Exception e) {
+                e.printStackTrace();
+                loadFailed(x, z);
+            }
+        }, () -> loadFailed(x, z));
+    }
+
+    // Not registered after all, the next update requests it again if it is still in range
+    private void loadFailed(int x, int z) {
+        chunks.clearLoading(x, z);
+        retryLoads = true;
+    }
+
+    // Registers an already generated chunk without going through the loader (benchmarks, tools)
+    void addChunk(Chunk c) { chunks.put(c); }
+
+    // Border faces of an already meshed neighbour changed; chunks still waiting for their first mesh see them anyway
+    private void refreshChunk(int cx, int cz) {
+        Chunk c = chunks.get(cx, cz);
+        if (c == null) return;
+        meshRequests.incrementAndGet();
+        if (c.hasRequestedMesh()) remeshBatch.add(c);
+    }
+
+    private void requestMesh(Chunk c) {
+        if (virtualPipeline != null) { if (virtualPipeline.remesh(this, c)) meshJobs.incrementAndGet(); return; }
+        if (!c.requestMesh()) return;
+        meshJobs.incrementAndGet();
+        scheduler.submit(ChunkScheduler.Kind.MESH, c.cx, c.cz, () -> {
+            c.takeMeshRequest();
+            c.computeMesh(this);
+        }, c::takeMeshRequest);
+    }
+
+    // PIPELINE HOOKS (worker / virtual threads)
+    Chunk loadOrGenerate(int cx, int cz) {
+        Chunk stored = storage != null ? storage.load(cx, cz) : null;
+        if (stored != null) return stored;
+        boolean near = Math.abs(cx - playerChunkX) <= PARALLEL_GEN_RADIUS && Math.abs(cz - playerChunkZ) <= PARALLEL_GEN_RADIUS;
+        return Chunk.generate(cx, cz, noise, PARALLEL_GEN_RADIUS > 0 && near);
+    }
+
+    void handOver(Chunk c) { chunksToRegister.add(c); }
+
+    // A freshly built mesh, uploaded by the render thread within its frame budget
+    void queueUpload(Chunk c) { uploads.offer(c); }
+
+    // The chunk will not be registered; generated terrain is kept for when the player comes back
+    void dropLoading(int cx, int cz, Chunk generated) {
+        if (generated != null && storage != null) storage.saveAsync(generated);
+        loadFailed(cx, cz);
+    }
+
+    // Loaded chunks that have a mesh built (benchmarks, tools)
+    int getMeshedChunkCount() {
+        int count = 0;
+        for (Chunk c : chunks.values()) if (c.hasMesh()) count++;
+        return count;
+    }
+
+    private static final int[][] NEIGHBOURS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+
+    // A missing neighbour only matters if it is inside the load ring, others will never arrive
+    boolean neighboursReady(Chunk c, int playerX, int playerZ) {
+        for (int[] d : NEIGHBOURS) {
+            int nx = c.cx + d[0], nz = c.cz + d[1];
+            boolean inRing = Math.abs(nx - playerX) <= renderDist && Math.abs(nz - playerZ) <= renderDist;
+            if (inRing && !chunks.contains(nx, nz)) return false;
         }
-        visibleChunks.sort((c1, c2) -> {
-            float d1 = (c1.cx * 16 - camPos.x) * (c1.cx * 16 - camPos.x) + (c1.cz * 16 - camPos.z) * (c1.cz * 16 - camPos.z);
-            float d2 = (c2.cx * 16 - camPos.x) * (c2.cx * 16 - camPos.x) + (c2.cz * 16 - camPos.z) * (c2.cz * 16 - camPos.z);
-            return Float.compare(d1, d2);
-        });
+        return true;
+    }
+
+    public long getMeshRequests() { return meshRequests.get(); }
+    public long getMeshJobsSaved() { return meshRequests.get() - meshJobs.get(); }
+    public Pipeline getPipeline() { return pipeline; }
+    public int getRenderDistance() { return renderDist; }
+    // Whether the culler may draw chunk (cx, cz), render thread. With far terrain on only the load ring is
+    // drawn: far.frag discards the far tiles just inside it, so the chunks kept out to unloadDist would
+    // z-fight with the tiles
+    boolean isDrawn(int cx, int cz) {
+        if (!ringSet || FarTerrain.FAR_DISTANCE <= renderDist) return true;
+        return Math.abs(cx - ringX) <= renderDist && Math.abs(cz - ringZ) <= renderDist;
+    }
+    public int getUnloadDistance() { return unloadDist; }
+    // How far terrain is drawn, far terrain included
+    public int getVisibleDistance() { return FarTerrain.FAR_DISTANCE > renderDist ? FarTerrain.FAR_DISTANCE : unloadDist; }
+    public int getGenerationBacklog() { return scheduler != null ? scheduler.getQueued(ChunkScheduler.Kind.GEN) : virtualPipeline.getPending(); }
+    public String getUploadStats() { return uploads.getStats(); }
+    public String getCullingStats() { return culler.getStats(); }
+    public String getFarTerrainStats() { return FarTerrain.FAR_DISTANCE <= renderDist ? "off" : farTerrain != null ? farTerrain.getStats() : "-"; }
+    List<Chunk> getLoadedChunks() { return chunks.values(); }
+    public String getPipelineStats() { return scheduler != null ? scheduler.getStats() : virtualPipeline.getStats(); }
+    public PerlinNoise getNoise() { return noise; }
+    public int getSeed() { return seed; }
+    public Chunk getChunk(int cx, int cz) { return chunks.get(cx, cz); }
+
+    public void render(Shader solid, Shader sGrass, Shader tGrass, Shader far, Matrix4f viewProjMatrix, Vector3f camPos) {
+        frustum.set(viewProjMatrix);
+        uploads.process(this, frustum, camPos.x, camPos.z);
+        culler.cull(this, frustum, camPos.x, camPos.y, camPos.z, visibleChunks);
 
         solid.bind();
         glDisable(GL_BLEND); glEnable(GL_CULL_FACE);
-        for (Chunk chunk : visibleChunks) chunk.renderSolids();
+        ChunkMesh.bind();
+        ChunkMesh.draw(visibleChunks, ChunkMesh.SOLID);
 
         sGrass.bind();
         glDisable(GL_CULL_FACE);
-        for (Chunk chunk : visibleChunks) chunk.renderShortGrass();
+        ChunkMesh.draw(visibleChunks, ChunkMesh.SHORT_GRASS);
 
         tGrass.bind();
-        for (Chunk chunk : visibleChunks) chunk.renderTallGrass();
+        ChunkMesh.draw(visibleChunks, ChunkMesh.TALL_GRASS);
+
+        // far terrain fills in beyond the chunks, before the water so it shows through it
+        if (ringSet && FarTerrain.FAR_DISTANCE > renderDist) {
+            if (farTerrain == null) farTerrain = new FarTerrain(noise);
+            far.bind();
+            farTerrain.render(far, frustum, ringX, ringZ, renderDist); // culling still off, skirts face either way
+        }
 
         solid.bind();
         glEnable(GL_BLEND); glDisable(GL_CULL_FACE);
-        for (Chunk chunk : visibleChunks) chunk.renderWater();
+        ChunkMesh.draw(visibleChunks, ChunkMesh.WATER);
 
         glDisable(GL_BLEND); glEnable(GL_CULL_FACE);
     }
 
-    public void cleanup() { genExecutor.shutdownNow(); meshExecutor.shutdownNow(); }
+    public void cleanup() {
+        if (farTerrain != null) farTerrain.cleanup();
+        if (scheduler != null) scheduler.shutdown();
+        else virtualPipeline.shutdown();
+        for (Chunk c : chunks.values()) c.dropPendingMesh(); // native memory
+        if (storage != null) {
+            for (Chunk c : chunks.values()) storage.saveAsync(c);
+            storage.close();
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,67 @@
+package me.xeroday.world;
+
+import me.xeroday.utils.PerlinNoise;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Headless world generation, no window or GL context needed.
+ *
+ * Generates a size x size area of chunks for a seed and reduces every block to one checksum, so a
+ * change to Chunk or PerlinNoise can be checked against a known value (WorldGeneratorTest).
+ *
+ *   WorldGenerator --seed 1337 --size 16 [--origin x z]
+ */
+public class WorldGenerator {
+    public static void main(String[] args) throws Exception {
+        int seed = 1337, size = 16, originX = 0, originZ = 0;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--seed" -> seed = World.parseSeed(args[++i]);
+                case "--size" -> size = Integer.parseInt(args[++i]);
+                case "--origin" -> { originX = Integer.parseInt(args[++i]); originZ = Integer.parseInt(args[++i]); }
+                default -> throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+
+        long start = System.nanoTime();
+        long checksum = checksum(seed, originX, originZ, size);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("seed %d, %dx%d chunks at %d, %d: checksum %d (%.2f s, %.0f chunks/s)%n",
+                seed, size, size, originX, originZ, checksum, seconds, size * size / seconds);
+    }
+
+    // Chunks are generated in parallel, but hashed and combined in a fixed order
+    public static long checksum(int seed, int originX, int originZ, int size) throws Exception {
+        PerlinNoise noise = new PerlinNoise(seed);
+        ExecutorService pool = Executors.newFixedThreadPool(ChunkScheduler.DEFAULT_THREADS);
+        try {
+            List<Future<Long>> hashes = new ArrayList<>(size * size);
+            for (int cx = originX; cx < originX + size; cx++) {
+                for (int cz = originZ; cz < originZ + size; cz++) {
+                    int x = cx, z = cz;
+                    hashes.add(pool.submit(() -> hash(Chunk.generate(x, z, noise))));
+                }
+            }
+            long checksum = 0;
+            for (Future<Long> hash : hashes) checksum = checksum * 1_000_003 + hash.get();
+            return checksum;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public static long hash(Chunk c) {
+        long h = 0;
+        for (int x = 0; x < Chunk.SIZE; x++) {
+            for (int y = Chunk.MIN_Y; y < Chunk.MAX_Y; y++) {
+                for (int z = 0; z < Chunk.SIZE; z++) h = h * 31 + c.getB(x, y, z);
+            }
+        }
+        return h;
+    }
+}
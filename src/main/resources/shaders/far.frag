@@ -0,0 +1,18 @@
+#version 330 core
+
+in float pass_layer;
+in vec3 pass_color;
+in vec2 pass_world;
+
+out vec4 FragColor;
+
+uniform sampler2DArray textureSampler;
+uniform vec4 loadedArea; // min x, min z, max x, max z of the loaded chunks
+
+void main() {
+    // the real chunks are drawn there
+    if (all(greaterThanEqual(pass_world, loadedArea.xy)) && all(lessThan(pass_world, loadedArea.zw))) discard;
+
+    vec4 texColor = texture(textureSampler, vec3(pass_world, pass_layer));
+    FragColor = vec4(texColor.rgb * pass_color, 1.0);
+}
@@ -0,0 +1,26 @@
+#version 330 core
+
+layout (location = 0) in uvec2 packedVertex;
+
+out float pass_layer;
+out vec3 pass_color;
+out vec2 pass_world;
+
+uniform mat4 view;
+uniform mat4 projection;
+uniform vec3 tile; // origin x, origin z, blocks per cell
+uniform vec3 palette[32];
+
+const float MIN_Y = -64.0;
+
+// Unpacks the 8 byte vertex written by FarTile (see FarTile.java for the bit layout)
+void main() {
+    uint a = packedVertex.x;
+    uint b = packedVertex.y;
+    vec3 pos = vec3(tile.x + float(a & 127u) * tile.z, float((a >> 14) & 511u) + MIN_Y, tile.y + float((a >> 7) & 127u) * tile.z);
+
+    pass_layer = float(b & 255u);
+    pass_color = palette[(b >> 8) & 255u];
+    pass_world = pos.xz; // also the texture coordinates, one repeat per block
+    gl_Position = projection * view * vec4(pos, 1.0);
+}
@@ -1,9 +1,6 @@
 #version 330 core
 
-layout (location = 0) in vec3 position;
-layout (location = 1) in vec2 uv;
-layout (location = 2) in float layer;
-layout (location = 3) in vec3 color;
+layout (location = 0) in uvec2 packedVertex;
 
 out vec2 pass_uv;
 out float pass_layer;
@@ -11,13 +8,38 @@ out vec3 pass_color;
 
 uniform mat4 view;
 uniform mat4 projection;
+uniform isamplerBuffer chunkOrigins; // per chunk slot, see ChunkMesh
+uniform vec3 palette[32];
+
+// Unpacks the 8 byte vertex written by ChunkVertex (see ChunkVertex.java for the bit layout)
+vec3 decodeVertex() {
+    uint a = packedVertex.x;
+    uint b = packedVertex.y;
+    vec3 local = vec3(float(a & 31u), float((a >> 10) & 511u), float((a >> 5) & 31u));
+    uint face = (a >> 19) & 7u;
+
+    if (face == 0u)      pass_uv = vec2(local.x, 1.0 - local.z);
+    else if (face == 1u) pass_uv = vec2(local.x, local.z);
+    else if (face == 2u) pass_uv = vec2(local.x, 1.0 - local.y);
+    else if (face == 3u) pass_uv = vec2(1.0 - local.x, 1.0 - local.y);
+    else if (face == 4u) pass_uv = vec2(1.0 - local.z, 1.0 - local.y);
+    else if (face == 5u) pass_uv = vec2(local.z, 1.0 - local.y);
+    else {
+        // cross plant: UV from the corner bits, random offset from the jitter nibbles
+        uint corner = (a >> 22) & 3u;
+        pass_uv = vec2(float(corner & 1u), float(corner >> 1));
+        local.x += (float((a >> 24) & 15u) / 15.0 - 0.5) * 0.3;
+        local.z += (float((a >> 28) & 15u) / 15.0 - 0.5) * 0.3;
+    }
+
+    pass_layer = float(b & 255u);
+    pass_color = palette[(b >> 8) & 255u];
+    return vec3(texelFetch(chunkOrigins, int(b >> 16u)).xyz) + local;
+}
 
 void main() {
     // TIP: This is where you will add wind sway later!
-    vec3 finalPos = position;
+    vec3 finalPos = decodeVertex();
 
     gl_Position = projection * view * vec4(finalPos, 1.0);
-    pass_uv = uv;
-    pass_layer = layer;
-    pass_color = color;
 }
\ No newline at end of file
@@ -0,0 +1,114 @@
+package me.xeroday.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArenaAllocatorTest {
+    // Random alloc/free/compact against a shadow copy of the arena: every unit is tagged with its
+    // allocation, so overlaps show up on alloc and compact() has to carry the tags along
+    @Test
+    void randomOperationsKeepTheArenaConsistent() {
+        Random r = new Random(42);
+        ArenaAllocator arena = new ArenaAllocator(4096);
+        int[] units = new int[arena.capacity()];
+        List<ArenaAllocator.Allocation> live = new ArrayList<>();
+        List<Integer> tags = new ArrayList<>();
+        int nextTag = 1;
+
+        for (int op = 0; op < 20_000; op++) {
+            int choice = r.nextInt(100);
+            if (choice < 55) {
+                int size = 1 + (r.nextInt(8) == 0 ? r.nextInt(512) : r.nextInt(32));
+                ArenaAllocator.Allocation a = arena.alloc(size);
+                if (a == null) {
+                    assertTrue(arena.largestFree() < size);
+                    continue;
+                }
+                assertEquals(size, a.size());
+                for (int i = a.offset(); i < a.offset() + size; i++) {
+                    assertEquals(0, units[i], "allocated twice at " + i);
+                    units[i] = nextTag;
+                }
+                live.add(a);
+                tags.add(nextTag++);
+            } else if (choice < 97) {
+                if (live.isEmpty()) continue;
+                int k = r.nextInt(live.size());
+                ArenaAllocator.Allocation a = live.remove(k);
+                int tag = tags.remove(k);
+                for (int i = a.offset(); i < a.offset() + a.size(); i++) {
+                    assertEquals(tag, units[i]);
+                    units[i] = 0;
+                }
+                arena.free(a);
+                assertThrows(IllegalArgumentException.class, () -> arena.free(a));
+            } else {
+                // sometimes grow, sometimes squeeze down to what is used
+                int capacity = r.nextBoolean() ? arena.capacity() * 2 : Math.max(arena.used(), 1);
+                int[] moved = new int[capacity];
+                int lastEnd = 0;
+                for (ArenaAllocator.Move m : arena.compact(capacity)) {
+                    assertTrue(m.newOffset() >= lastEnd, "moves overlap or are out of order");
+                    lastEnd = m.newOffset() + m.size();
+                    System.arraycopy(units, m.oldOffset(), moved, m.newOffset(), m.size());
+                }
+                units = moved;
+                assertEquals(arena.used() == capacity ? 0 : 1, arena.freeRanges());
+            }
+
+            arena.validate();
+            int used = 0;
+            for (int k = 0; k < live.size(); k++) {
+                ArenaAllocator.Allocation a = live.get(k);
+                used += a.size();
+                for (int i = a.offset(); i < a.offset() + a.size(); i++) assertEquals((int) tags.get(k), units[i]);
+            }
+            assertEquals(used, arena.used());
+            assertEquals(live.size(), arena.allocations());
+        }
+    }
+
+    @Test
+    void freedNeighboursMerge() {
+        ArenaAllocator arena = new ArenaAllocator(100);
+        ArenaAllocator.Allocation a = arena.alloc(10), b = arena.alloc(20), c = arena.alloc(30);
+        arena.free(a);
+        arena.free(c);
+        assertEquals(2, arena.freeRanges());
+        arena.free(b);
+        arena.validate();
+        assertEquals(1, arena.freeRanges());
+        assertEquals(100, arena.largestFree());
+    }
+
+    // The smallest range that fits is taken, the large one is kept for a large mesh
+    @Test
+    void bestFit() {
+        ArenaAllocator arena = new ArenaAllocator(100);
+        ArenaAllocator.Allocation[] a = new ArenaAllocator.Allocation[5];
+        for (int i = 0; i < a.length; i++) a[i] = arena.alloc(10);
+        arena.free(a[1]); // 10 free at 10
+        arena.free(a[3]); // 10 free at 30, 50 free at 50
+        ArenaAllocator.Allocation small = arena.alloc(8);
+        assertTrue(small.offset() == 10 || small.offset() == 30);
+        assertEquals(50, arena.alloc(50).offset());
+        assertNull(arena.alloc(11));
+        arena.validate();
+    }
+
+    @Test
+    void compactBelowUsedIsRejected() {
+        ArenaAllocator arena = new ArenaAllocator(64);
+        arena.alloc(40);
+        assertThrows(IllegalArgumentException.class, () -> arena.compact(39));
+        assertEquals(List.of(new ArenaAllocator.Move(0, 0, 40)), arena.compact(40));
+        assertEquals(0, arena.freeRanges());
+        arena.validate();
+        assertEquals(40, arena.used());
+    }
+}
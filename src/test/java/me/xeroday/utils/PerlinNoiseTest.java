@@ -0,0 +1,75 @@
+package me.xeroday.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PerlinNoiseTest {
+    // The batched paths only reorder the gradient sums, so they agree with the scalar noise to
+    // rounding; noise values are within [-1, 1]
+    private static final double EPSILON = 1e-12;
+
+    private final PerlinNoise noise = new PerlinNoise(1337);
+
+    // Random points, negative and far from the origin too, in batch sizes around the block size
+    @Test
+    void batchMatchesScalar() {
+        Random r = new Random(42);
+        for (int count : new int[]{ 1, 7, 127, 128, 129, 300, 1000 }) {
+            double[] xs = new double[count], ys = new double[count], zs = new double[count], out = new double[count];
+            for (int i = 0; i < count; i++) {
+                double range = r.nextBoolean() ? 4 : 5000;
+                xs[i] = (r.nextDouble() * 2 - 1) * range;
+                ys[i] = (r.nextDouble() * 2 - 1) * range;
+                zs[i] = (r.nextDouble() * 2 - 1) * range;
+            }
+            noise.getNoise(xs, ys, zs, out, count);
+            for (int i = 0; i < count; i++) {
+                assertEquals(noise.getNoise(xs[i], ys[i], zs[i]), out[i], EPSILON, "sample " + i + " of " + count);
+            }
+        }
+    }
+
+    // Integer lattice points, where every fraction is zero and the noise is exactly 0
+    @Test
+    void batchMatchesScalarOnLattice() {
+        int count = 64;
+        double[] xs = new double[count], ys = new double[count], zs = new double[count], out = new double[count];
+        for (int i = 0; i < count; i++) { xs[i] = i - 32; ys[i] = 3 * i; zs[i] = -i; }
+        noise.getNoise(xs, ys, zs, out, count);
+        for (int i = 0; i < count; i++) assertEquals(noise.getNoise(xs[i], ys[i], zs[i]), out[i], EPSILON);
+    }
+
+    // The column variant, and a whole fbm over it the way Chunk builds its density column
+    @Test
+    void columnMatchesScalar() {
+        Random r = new Random(7);
+        for (int round = 0; round < 50; round++) {
+            double x = (r.nextDouble() * 2 - 1) * 3000, z = (r.nextDouble() * 2 - 1) * 3000;
+            int count = 1 + r.nextInt(400);
+            double[] ys = new double[count], out = new double[count];
+            for (int i = 0; i < count; i++) ys[i] = (i - 64 + r.nextDouble() * 6) * 0.006;
+            noise.getNoise(x, ys, z, out, count);
+            for (int i = 0; i < count; i++) assertEquals(noise.getNoise(x, ys[i], z), out[i], EPSILON, "round " + round + ", sample " + i);
+        }
+    }
+
+    // getFBM samples the plane y = 0, so an fbm summed from batches of the same points matches it
+    @Test
+    void fbmFromBatchesMatchesScalar() {
+        int count = 256, octaves = 3;
+        float scale = 0.0018f;
+        double[] xs = new double[count], ys = new double[count], zs = new double[count], n = new double[count];
+        float[] total = new float[count];
+        float frequency = scale, amplitude = 1, max = 0;
+        for (int o = 0; o < octaves; o++) {
+            for (int i = 0; i < count; i++) { xs[i] = (i * 37 - 4000) * frequency; zs[i] = (i * 11 + 900) * frequency; }
+            noise.getNoise(xs, ys, zs, n, count);
+            for (int i = 0; i < count; i++) total[i] += (float) n[i] * amplitude;
+            max += amplitude; amplitude *= 0.5f; frequency *= 2.0f;
+        }
+        for (int i = 0; i < count; i++) assertEquals(noise.getFBM(i * 37 - 4000, i * 11 + 900, scale, octaves), total[i] / max, 1e-6f);
+    }
+}
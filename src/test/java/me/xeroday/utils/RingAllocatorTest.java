@@ -0,0 +1,109 @@
+package me.xeroday.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RingAllocatorTest {
+    // Random alloc/fence/retire against a shadow copy of the ring: every unit is tagged with the group
+    // that holds it, so an allocation handed out over space a live group still holds (or past the end)
+    // shows up straight away
+    @Test
+    void randomOperationsNeverOverlapLiveGroups() {
+        Random r = new Random(42);
+        RingAllocator ring = new RingAllocator(1000);
+        int[] units = new int[ring.capacity()];
+        ArrayDeque<List<int[]>> groups = new ArrayDeque<>(); // fenced groups, oldest first: {offset, size} each
+        List<int[]> open = new ArrayList<>();
+        int tag = 1; // tag of the open group, fenced groups are tag - groups.size() .. tag - 1
+
+        for (int op = 0; op < 50_000; op++) {
+            int choice = r.nextInt(100);
+            if (choice < 70) {
+                int size = 1 + (r.nextInt(10) == 0 ? r.nextInt(ring.capacity()) : r.nextInt(64));
+                int offset = ring.alloc(size);
+                if (offset < 0) {
+                    assertTrue(ring.used() > 0, "an empty ring always fits");
+                    continue;
+                }
+                assertTrue(offset + size <= ring.capacity(), "past the end at " + offset);
+                for (int i = offset; i < offset + size; i++) {
+                    assertEquals(0, units[i], "still held at " + i);
+                    units[i] = tag;
+                }
+                open.add(new int[]{offset, size});
+            } else if (choice < 85) {
+                ring.fence();
+                groups.add(open);
+                open = new ArrayList<>();
+                tag++;
+            } else if (!groups.isEmpty()) {
+                int oldest = tag - groups.size();
+                for (int[] a : groups.poll())
+                    for (int i = a[0]; i < a[0] + a[1]; i++) {
+                        assertEquals(oldest, units[i]);
+                        units[i] = 0;
+                    }
+                ring.retireOldest();
+            }
+
+            int held = 0;
+            for (int u : units) if (u != 0) held++;
+            assertTrue(ring.used() >= held, "used " + ring.used() + " < held " + held);
+            assertTrue(ring.used() <= ring.capacity());
+        }
+    }
+
+    // With the head exactly at the end and older data still held, the next allocation has to start at 0
+    @Test
+    void headAtTheEndWrapsToTheStart() {
+        RingAllocator ring = new RingAllocator(64);
+        assertEquals(0, ring.alloc(32));
+        ring.fence();
+        assertEquals(32, ring.alloc(32));
+        ring.fence();
+        ring.retireOldest();
+        assertEquals(0, ring.alloc(16));
+        assertEquals(48, ring.used());
+    }
+
+    // A skipped tail belongs to the open group and comes back when that group retires
+    @Test
+    void skippedTailIsHeldUntilItsGroupRetires() {
+        RingAllocator ring = new RingAllocator(100);
+        assertEquals(0, ring.alloc(40));
+        ring.fence();
+        assertEquals(40, ring.alloc(40));
+        ring.fence();
+        ring.retireOldest(); // 40..80 held
+        assertEquals(-1, ring.alloc(41)); // 20 skipped at the end + 41 at 0 would run into 40
+        assertEquals(0, ring.alloc(30)); // 80..100 skipped
+        assertEquals(90, ring.used());
+        assertTrue(ring.hasUnfenced());
+        ring.fence();
+        ring.retireOldest();
+        assertEquals(50, ring.used()); // the 20 skipped bytes + 30
+        ring.retireOldest();
+        assertEquals(0, ring.used());
+        assertFalse(ring.hasUnfenced());
+        assertEquals(0, ring.alloc(100)); // empty ring starts over at 0
+    }
+
+    @Test
+    void fullRingNeedsARetire() {
+        RingAllocator ring = new RingAllocator(64);
+        assertEquals(0, ring.alloc(64));
+        assertEquals(-1, ring.alloc(1));
+        ring.fence();
+        assertEquals(1, ring.fences());
+        ring.retireOldest();
+        assertEquals(0, ring.alloc(1));
+        assertThrows(IllegalStateException.class, ring::retireOldest);
+        assertThrows(IllegalArgumentException.class, () -> ring.alloc(65));
+    }
+}
@@ -0,0 +1,41 @@
+package me.xeroday.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScratchPoolTest {
+    @Test
+    void platformThreadKeepsItsOwn() {
+        ScratchPool<int[]> pool = new ScratchPool<>(() -> new int[16], 2);
+        int[] a = pool.get();
+        pool.release(a);
+        assertSame(a, pool.get());
+    }
+
+    @Test
+    void virtualThreadsShareABoundedPool() throws InterruptedException {
+        AtomicInteger created = new AtomicInteger();
+        ScratchPool<int[]> pool = new ScratchPool<>(() -> { created.incrementAndGet(); return new int[16]; }, 2);
+
+        // one after another, every virtual thread gets the same spare
+        for (int i = 0; i < 100; i++) Thread.ofVirtual().start(() -> pool.release(pool.get())).join();
+        assertEquals(1, created.get());
+
+        // four held at once, only two are kept afterwards
+        List<int[]> held = new ArrayList<>();
+        Thread.ofVirtual().start(() -> {
+            for (int i = 0; i < 4; i++) held.add(pool.get());
+            for (int[] scratch : held) pool.release(scratch);
+        }).join();
+        assertEquals(4, created.get());
+        Thread.ofVirtual().start(() -> {
+            for (int i = 0; i < 4; i++) pool.get();
+        }).join();
+        assertEquals(6, created.get());
+    }
+}
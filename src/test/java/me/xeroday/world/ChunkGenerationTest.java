@@ -0,0 +1,69 @@
+package me.xeroday.world;
+
+import me.xeroday.utils.PerlinNoise;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkGenerationTest {
+    private final PerlinNoise noise = new PerlinNoise(1337);
+
+    @AfterEach
+    void tearDown() {
+        Chunk.LERP_TERRAIN = false;
+        Chunk.COLUMN_EARLY_OUT = true;
+    }
+
+    // Skipping the density noise where the bias alone decides must not change a single block,
+    // from ocean floors to mountain tops
+    @Test
+    void columnEarlyOutIsExact() {
+        for (int i = 0; i < 24; i++) {
+            int cx = i * 37 - 400, cz = i * 23 - 300;
+            Chunk.COLUMN_EARLY_OUT = false;
+            long full = WorldGenerator.hash(Chunk.generate(cx, cz, noise));
+            Chunk.COLUMN_EARLY_OUT = true;
+            assertEquals(full, WorldGenerator.hash(Chunk.generate(cx, cz, noise)), "chunk " + cx + ", " + cz);
+        }
+    }
+
+    // Splitting the column loop over the fork-join pool gives the same chunk, vegetation included
+    @Test
+    void parallelColumnsMatchSequential() {
+        for (boolean lerp : new boolean[]{ false, true }) {
+            Chunk.LERP_TERRAIN = lerp;
+            for (int i = 0; i < 12; i++) {
+                int cx = i * 13 - 60, cz = 40 - i * 9;
+                Chunk sequential = Chunk.generate(cx, cz, noise, false), parallel = Chunk.generate(cx, cz, noise, true);
+                assertEquals(WorldGenerator.hash(sequential), WorldGenerator.hash(parallel), "chunk " + cx + ", " + cz + (lerp ? " (lerp)" : ""));
+                for (int x = 0; x < Chunk.SIZE; x++) {
+                    for (int z = 0; z < Chunk.SIZE; z++) assertEquals(sequential.getBiome(x, z), parallel.getBiome(x, z));
+                }
+            }
+        }
+    }
+
+    // The lattice is an approximation: few blocks may differ and the surface stays within a block on average
+    @Test
+    void lerpTerrainStaysCloseToExact() {
+        long blocks = 0, different = 0, heightError = 0, columns = 0;
+        for (int i = 0; i < 16; i++) {
+            int cx = i * 7 - 100, cz = i * 11 - 50;
+            Chunk.LERP_TERRAIN = false;
+            Chunk exact = Chunk.generate(cx, cz, noise);
+            Chunk.LERP_TERRAIN = true;
+            Chunk lerp = Chunk.generate(cx, cz, noise);
+            for (int x = 0; x < Chunk.SIZE; x++) {
+                for (int z = 0; z < Chunk.SIZE; z++) {
+                    for (int y = Chunk.MIN_Y; y < Chunk.MAX_Y; y++, blocks++) if (exact.getB(x, y, z) != lerp.getB(x, y, z)) different++;
+                    heightError += Math.abs(exact.getHeight(Chunk.HEIGHT_OPAQUE, x, z) - lerp.getHeight(Chunk.HEIGHT_OPAQUE, x, z));
+                    columns++;
+                }
+            }
+        }
+        assertTrue(different > 0, "lattice mode was not used");
+        assertTrue(different < blocks / 100, different + " of " + blocks + " blocks differ");
+        assertTrue(heightError < columns, "mean surface error " + heightError / (double) columns);
+    }
+}
@@ -0,0 +1,73 @@
+package me.xeroday.world;
+
+import me.xeroday.models.Models;
+import me.xeroday.utils.PerlinNoise;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkHeightmapTest {
+    private static final byte[] EDITS = { 0, 0, 0, Block.STONE.id, Block.WATER.id, Block.LEAVES.id, Block.PLANT_GRASS.id, Block.DIRT.id };
+
+    @Test
+    void heightmapsFollowEdits() {
+        PerlinNoise noise = new PerlinNoise(1337);
+        Random r = new Random(42);
+        for (int i = 0; i < 8; i++) {
+            Chunk c = Chunk.generate(i * 5 - 20, i * 3 - 10, noise);
+            assertMatchesScan(c, "generated");
+
+            for (int round = 0; round < 20; round++) {
+                // near the surface, where the maps actually move
+                for (int k = 0; k < 200; k++) {
+                    int x = r.nextInt(Chunk.SIZE), z = r.nextInt(Chunk.SIZE);
+                    int y = c.getHeight(Chunk.HEIGHT_ANY, x, z) + r.nextInt(9) - 6;
+                    c.setB(x, y, z, EDITS[r.nextInt(EDITS.length)]);
+                }
+                // a column cleared from the top, then a tree that can reach past the chunk edge
+                int x = r.nextInt(Chunk.SIZE), z = r.nextInt(Chunk.SIZE);
+                int bottom = Chunk.MIN_Y + r.nextInt(Chunk.MAX_Y - Chunk.MIN_Y);
+                for (int y = Chunk.MAX_Y - 1; y >= bottom; y--) c.setB(x, y, z, (byte) 0);
+                c.placeModel(r.nextInt(Chunk.SIZE), c.getHeight(Chunk.HEIGHT_NO_WATER, x, z) + 1, r.nextInt(Chunk.SIZE), Models.OAK_TREE);
+                assertMatchesScan(c, "round " + round);
+            }
+        }
+    }
+
+    // The column biome cache answers like the noise lookup for unloaded terrain
+    @Test
+    void biomeCacheMatchesNoise() {
+        World world = new World(1337, null);
+        try {
+            for (int i = 0; i < 8; i++) {
+                int cx = i * 40 - 160, cz = i * 25 - 100;
+                Chunk c = Chunk.generate(cx, cz, world.getNoise());
+                for (int x = 0; x < Chunk.SIZE; x++) {
+                    for (int z = 0; z < Chunk.SIZE; z++) assertEquals(world.getBiomeAt(cx * 16 + x, cz * 16 + z), c.getBiome(x, z));
+                }
+            }
+        } finally {
+            world.cleanup();
+        }
+    }
+
+    private static void assertMatchesScan(Chunk c, String when) {
+        for (int x = 0; x < Chunk.SIZE; x++) {
+            for (int z = 0; z < Chunk.SIZE; z++) {
+                int any = Chunk.MIN_Y - 1, opaque = Chunk.MIN_Y - 1, noWater = Chunk.MIN_Y - 1;
+                for (int y = Chunk.MIN_Y; y < Chunk.MAX_Y; y++) {
+                    byte id = c.getB(x, y, z);
+                    if (id != 0) any = y;
+                    if (Block.get(id).opaque) opaque = y;
+                    if (id != 0 && id != Block.WATER.id) noWater = y;
+                }
+                String at = when + ", column " + x + ", " + z;
+                assertEquals(any, c.getHeight(Chunk.HEIGHT_ANY, x, z), at);
+                assertEquals(opaque, c.getHeight(Chunk.HEIGHT_OPAQUE, x, z), at);
+                assertEquals(noWater, c.getHeight(Chunk.HEIGHT_NO_WATER, x, z), at);
+            }
+        }
+    }
+}
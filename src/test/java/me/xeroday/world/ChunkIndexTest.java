@@ -0,0 +1,129 @@
+package me.xeroday.world;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkIndexTest {
+    private static final int RADIUS = 4, SIDE = 16; // the grid side for radius 4
+
+    // Chunks a multiple of the grid side apart share a cell; all but the first wait in the fallback
+    @Test
+    void wraparoundSharesCells() {
+        ChunkIndex index = new ChunkIndex(RADIUS);
+        int[][] coords = { { 0, 0 }, { SIDE, 0 }, { 0, -SIDE }, { -3 * SIDE, 2 * SIDE }, { 1, 0 }, { SIDE + 1, 0 } };
+        for (int[] c : coords) index.put(new Chunk(c[0], c[1]));
+        assertEquals(coords.length, index.size());
+        for (int[] c : coords) assertAt(index, c[0], c[1]);
+        assertNull(index.get(2 * SIDE, 0));
+        assertNull(index.get(0, SIDE));
+        assertEquals(coords.length, index.values().size());
+
+        // replacing keeps the size, in the cell and in the fallback
+        Chunk replaced = new Chunk(SIDE, 0);
+        index.put(new Chunk(0, 0));
+        index.put(replaced);
+        assertEquals(coords.length, index.size());
+        assertSame(replaced, index.get(SIDE, 0));
+
+        // freeing the cell moves a waiting chunk in, the others stay where they are
+        assertNotNull(index.remove(0, 0));
+        assertNull(index.get(0, 0));
+        assertNull(index.remove(0, 0));
+        for (int i = 1; i < coords.length; i++) assertAt(index, coords[i][0], coords[i][1]);
+        assertEquals(coords.length - 1, index.size());
+
+        for (int i = 1; i < coords.length; i++) assertNotNull(index.remove(coords[i][0], coords[i][1]));
+        assertEquals(0, index.size());
+        assertTrue(index.values().isEmpty());
+    }
+
+    @Test
+    void loadingMarksShareCells() {
+        ChunkIndex index = new ChunkIndex(RADIUS);
+        assertTrue(index.markLoading(3, 5));
+        assertTrue(index.markLoading(3 + SIDE, 5 - SIDE));
+        assertFalse(index.markLoading(3, 5));
+        assertFalse(index.markLoading(3 + SIDE, 5 - SIDE));
+        assertTrue(index.isLoading(3, 5));
+        assertTrue(index.isLoading(3 + SIDE, 5 - SIDE));
+        assertFalse(index.isLoading(3 - SIDE, 5));
+
+        index.clearLoading(3, 5);
+        assertFalse(index.isLoading(3, 5));
+        assertTrue(index.isLoading(3 + SIDE, 5 - SIDE));
+        index.clearLoading(3 + SIDE, 5 - SIDE);
+        assertFalse(index.isLoading(3 + SIDE, 5 - SIDE));
+        assertTrue(index.markLoading(3 + SIDE, 5 - SIDE)); // free cell again
+    }
+
+    // One writer keeps moving chunks between a cell and the fallback while readers look them up:
+    // a chunk that is in the index for the whole lookup is always found, and nothing else is
+    @Test
+    void readersNeverMissPresentChunks() throws InterruptedException {
+        ChunkIndex index = new ChunkIndex(RADIUS);
+        int cells = 8;
+        AtomicInteger[] phase = new AtomicInteger[cells]; // odd while the waiting chunk is present
+        for (int i = 0; i < cells; i++) phase[i] = new AtomicInteger();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicInteger checked = new AtomicInteger();
+        int rounds = 100_000;
+
+        Thread writer = new Thread(() -> {
+            for (int round = 0; round < rounds && failure.get() == null; round++) {
+                int i = round % cells;
+                index.put(new Chunk(i, 0)); // takes the cell
+                index.put(new Chunk(i + SIDE, 0)); // waits in the fallback
+                phase[i].incrementAndGet();
+                index.remove(i, 0); // moves it into the cell
+                phase[i].incrementAndGet();
+                index.remove(i + SIDE, 0);
+            }
+        });
+        List<Thread> readers = new ArrayList<>();
+        for (int t = 0; t < 3; t++) {
+            readers.add(new Thread(() -> {
+                try {
+                    while (writer.isAlive()) {
+                        for (int i = 0; i < cells; i++) {
+                            int before = phase[i].get();
+                            Chunk c = index.get(i + SIDE, 0);
+                            if (c != null) assertTrue(c.cx == i + SIDE && c.cz == 0);
+                            if ((before & 1) == 1 && phase[i].get() == before) {
+                                assertNotNull(c, "missed chunk " + (i + SIDE));
+                                checked.incrementAndGet();
+                            }
+                            assertNull(index.get(i + 2 * SIDE, 0));
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }));
+        }
+        writer.start();
+        for (Thread r : readers) r.start();
+        writer.join();
+        for (Thread r : readers) r.join();
+        assertNull(failure.get());
+        assertTrue(checked.get() > 0, "no lookup overlapped a present chunk");
+        assertEquals(0, index.size());
+    }
+
+    private static void assertAt(ChunkIndex index, int x, int z) {
+        Chunk c = index.get(x, z);
+        assertNotNull(c, x + ", " + z);
+        assertEquals(x, c.cx);
+        assertEquals(z, c.cz);
+        assertTrue(index.contains(x, z));
+        Set<Long> keys = new HashSet<>();
+        for (Chunk v : index.values()) assertTrue(keys.add(ChunkIndex.key(v.cx, v.cz)), "listed twice");
+    }
+}
@@ -0,0 +1,167 @@
+package me.xeroday.world;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// One worker, held on a first job while the queue fills, so the order jobs run in is the queue's
+class ChunkSchedulerTest {
+    private ChunkScheduler scheduler;
+    private CountDownLatch gate;
+    private final List<String> ran = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> cancelled = Collections.synchronizedList(new ArrayList<>());
+
+    @AfterEach
+    void tearDown() {
+        if (gate != null) gate.countDown();
+        if (scheduler != null) scheduler.shutdown();
+    }
+
+    @Test
+    void nearChunksFirst() throws InterruptedException {
+        start(16);
+        scheduler.updatePlayer(0, 0, 0, -1); // looking towards -z
+        Random r = new Random(42);
+        List<int[]> coords = new ArrayList<>();
+        for (int x = -6; x <= 6; x++) for (int z = -6; z <= 6; z++) coords.add(new int[]{ x, z });
+        Collections.shuffle(coords, r);
+        for (int[] c : coords) submit(ChunkScheduler.Kind.GEN, c[0], c[1]);
+        submit(ChunkScheduler.Kind.MESH, 2, 0);
+        finish(coords.size() + 1);
+
+        // in cost order: distance, stretched up to 2x for chunks behind the camera
+        assertEquals("GEN 0 0", ran.get(0));
+        assertTrue(ran.indexOf("GEN 0 -3") < ran.indexOf("GEN 0 3"), "ahead first");
+        assertTrue(ran.indexOf("GEN 0 -6") < ran.indexOf("GEN 0 4"), "behind counts as further away");
+        assertTrue(ran.indexOf("MESH 2 0") < ran.indexOf("GEN 2 0"), "meshing first at equal cost");
+        int lastNear = 0, firstFar = ran.size();
+        for (int i = 0; i < ran.size(); i++) {
+            int ring = Math.max(Math.abs(x(ran.get(i))), Math.abs(z(ran.get(i))));
+            if (ring <= 1) lastNear = i;
+            if (ring >= 4) firstFar = Math.min(firstFar, i);
+        }
+        assertTrue(lastNear < firstFar, "the 3x3 around the player before anything 4 chunks out");
+        for (int i = 1; i < ran.size(); i++) assertTrue(cost(ran.get(i - 1)) <= cost(ran.get(i)) + 1e-4f, ran.get(i - 1) + " before " + ran.get(i));
+    }
+
+    // The player flies along +x while jobs keep coming in around it: whatever it left behind is
+    // cancelled (onCancel instead of the task), the rest runs nearest to where it ended up first
+    @Test
+    void movingPlayerCancelsWhatItLeftBehind() throws InterruptedException {
+        int range = 4;
+        start(range);
+        int submitted = 0;
+        for (int px = 0; px <= 20; px += 2) {
+            scheduler.updatePlayer(px, 0, 1, 0);
+            for (int z = -range; z <= range; z += 2) { submit(ChunkScheduler.Kind.GEN, px + range, z); submitted++; }
+            submit(ChunkScheduler.Kind.MESH, px, 0); submitted++;
+        }
+        int endX = 20;
+        assertTrue(scheduler.getCancelled() > 0);
+        assertEquals(scheduler.getCancelled(), cancelled.size());
+        for (String job : cancelled) assertTrue(Math.abs(x(job) - endX) > range, "cancelled in range: " + job);
+        assertEquals(submitted - cancelled.size(), scheduler.getQueued(ChunkScheduler.Kind.GEN) + scheduler.getQueued(ChunkScheduler.Kind.MESH));
+
+        finish(submitted - cancelled.size());
+        for (String job : ran) assertTrue(Math.abs(x(job) - endX) <= range, "ran out of range: " + job);
+        assertEquals("MESH 20 0", ran.get(0));
+        for (int i = 1; i < ran.size(); i++) assertTrue(cost(ran.get(i - 1), endX, 1) <= cost(ran.get(i), endX, 1) + 1e-4f, ran.get(i - 1) + " before " + ran.get(i));
+
+        assertEquals(submitted + 1, scheduler.getSubmitted()); // and the gate
+        assertEquals(ran.size() + 1, scheduler.getStarted());
+        assertEquals(submitted, ran.size() + cancelled.size());
+        assertEquals(0, scheduler.getQueued(ChunkScheduler.Kind.GEN));
+        assertEquals(0, scheduler.getQueued(ChunkScheduler.Kind.MESH));
+        assertTrue(scheduler.getMaxWaitMillis() >= scheduler.getAverageWaitMillis());
+        assertTrue(scheduler.getAverageWaitMillis() > 0);
+        assertTrue(scheduler.getStats().contains(scheduler.getCancelled() + " cancelled"), scheduler.getStats());
+    }
+
+    // A smaller range drops on the next update, a job that throws counts as failed, shutdown
+    // cancels what is still queued
+    @Test
+    void rangeFailuresAndShutdown() throws InterruptedException {
+        start(8);
+        scheduler.updatePlayer(0, 0, 0, -1);
+        for (int x = 0; x <= 8; x++) submit(ChunkScheduler.Kind.GEN, x, 0);
+        scheduler.setRange(3);
+        assertEquals(9, scheduler.getQueued(ChunkScheduler.Kind.GEN));
+        scheduler.updatePlayer(0, 0, 0, -1);
+        assertEquals(4, scheduler.getQueued(ChunkScheduler.Kind.GEN));
+        assertEquals(List.of("GEN 4 0", "GEN 5 0", "GEN 6 0", "GEN 7 0", "GEN 8 0"), sorted(cancelled));
+
+        CountDownLatch failedRun = new CountDownLatch(1);
+        scheduler.submit(ChunkScheduler.Kind.MESH, 0, 0, () -> { failedRun.countDown(); throw new IllegalStateException("test"); }, null);
+        finish(4);
+        assertTrue(failedRun.await(10, TimeUnit.SECONDS));
+        waitFor(() -> scheduler.getFailed() == 1);
+
+        CountDownLatch hold = new CountDownLatch(1);
+        scheduler.submit(ChunkScheduler.Kind.GEN, 0, 0, () -> { try { hold.await(); } catch (InterruptedException e) { Thread.currentThread().interrupt(); } }, null);
+        waitFor(() -> scheduler.getQueued(ChunkScheduler.Kind.GEN) == 0);
+        cancelled.clear();
+        submit(ChunkScheduler.Kind.GEN, 1, 1);
+        submit(ChunkScheduler.Kind.MESH, 2, 1);
+        scheduler.shutdown();
+        hold.countDown();
+        assertEquals(List.of("GEN 1 1", "MESH 2 1"), sorted(cancelled));
+        submit(ChunkScheduler.Kind.GEN, 0, 0); // after shutdown: cancelled straight away
+        assertEquals(3, cancelled.size());
+    }
+
+    // Starts a one worker scheduler and parks the worker on a job at the player's chunk
+    private void start(int range) throws InterruptedException {
+        scheduler = new ChunkScheduler(range, 1);
+        gate = new CountDownLatch(1);
+        CountDownLatch parked = new CountDownLatch(1);
+        scheduler.submit(ChunkScheduler.Kind.GEN, 0, 0, () -> {
+            parked.countDown();
+            try { gate.await(); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        }, null);
+        assertTrue(parked.await(10, TimeUnit.SECONDS));
+    }
+
+    private void submit(ChunkScheduler.Kind kind, int cx, int cz) {
+        String name = kind + " " + cx + " " + cz;
+        scheduler.submit(kind, cx, cz, () -> ran.add(name), () -> cancelled.add(name));
+    }
+
+    // Releases the worker and waits for count jobs to run
+    private void finish(int count) throws InterruptedException {
+        gate.countDown();
+        waitFor(() -> ran.size() >= count);
+        assertEquals(count, ran.size());
+    }
+
+    private static void waitFor(BooleanSupplier done) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!done.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(1);
+        }
+    }
+
+    private static int x(String job) { return Integer.parseInt(job.split(" ")[1]); }
+    private static int z(String job) { return Integer.parseInt(job.split(" ")[2]); }
+    private static List<String> sorted(List<String> jobs) { List<String> s = new ArrayList<>(jobs); Collections.sort(s); return s; }
+
+    // The scheduler's cost for a player at (px, 0) looking along -z (dirX 0) or +x (dirX 1)
+    private static float cost(String job) { return cost(job, 0, 0); }
+    private static float cost(String job, int px, float dirX) {
+        int dx = x(job) - px, dz = z(job);
+        float dirZ = dirX == 0 ? -1 : 0;
+        float dist = (float) Math.sqrt(dx * dx + dz * dz);
+        if (dist == 0) return 0;
+        float facing = (dx * dirX + dz * dirZ) / dist; // 1 ahead, -1 behind
+        return dist * (1 + (1 - facing) / 2);
+    }
+}
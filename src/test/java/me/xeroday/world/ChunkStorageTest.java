@@ -0,0 +1,100 @@
+package me.xeroday.world;
+
+import me.xeroday.utils.PerlinNoise;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkStorageTest {
+    @TempDir
+    Path dir;
+
+    private final PerlinNoise noise = new PerlinNoise(1337);
+
+    // Chunks on both sides of region borders, with an edit after generation
+    @Test
+    void savedChunksLoadBackIdentical() {
+        int[][] coords = { {0, 0}, {31, 31}, {32, 0}, {-1, -1}, {-33, 40}, {100, -65} };
+        Chunk[] saved = new Chunk[coords.length];
+        ChunkStorage storage = new ChunkStorage(dir);
+        for (int i = 0; i < coords.length; i++) {
+            saved[i] = Chunk.generate(coords[i][0], coords[i][1], noise);
+            saved[i].setB(3, 200, 5, Block.LOG.id);
+            storage.saveAsync(saved[i]);
+        }
+        assertFalse(storage.contains(1, 0));
+        storage.close();
+
+        storage = new ChunkStorage(dir);
+        try {
+            assertNull(storage.load(1, 0));
+            for (int i = 0; i < coords.length; i++) {
+                assertTrue(storage.contains(coords[i][0], coords[i][1]));
+                Chunk loaded = storage.load(coords[i][0], coords[i][1]);
+                assertNotNull(loaded);
+                assertFalse(loaded.unsaved);
+                assertEquals(WorldGenerator.hash(saved[i]), WorldGenerator.hash(loaded));
+                assertEquals(Block.LOG.id, loaded.getB(3, 200, 5));
+                for (int x = 0; x < Chunk.SIZE; x++) {
+                    for (int z = 0; z < Chunk.SIZE; z++) {
+                        assertEquals(saved[i].getBiome(x, z), loaded.getBiome(x, z));
+                        for (int type = 0; type < 3; type++) assertEquals(saved[i].getHeight(type, x, z), loaded.getHeight(type, x, z));
+                    }
+                }
+            }
+        } finally {
+            storage.close();
+        }
+    }
+
+    // Unloaded and requested again before its write lands: the unloaded instance drops every mesh
+    // built for it, so what comes back has to be a copy that meshes normally
+    @Test
+    void reloadWhileWritePending() {
+        World world = new World(1337, null, World.Pipeline.SCHEDULER);
+        ChunkStorage storage = new ChunkStorage(dir);
+        try {
+            Chunk c = Chunk.generate(0, 0, world.getNoise());
+            c.setB(3, 200, 5, Block.LOG.id);
+            mesh(c, world);
+            assertTrue(c.isMeshCurrent());
+            c.cleanup(); // World.unload
+
+            Chunk reloaded;
+            synchronized (storage) { // holds the writer in getRegion, so the write can't land yet
+                storage.saveAsync(c);
+                assertTrue(storage.contains(0, 0));
+                reloaded = storage.load(0, 0);
+            }
+            assertNotNull(reloaded);
+            assertNotSame(c, reloaded);
+            assertTrue(reloaded.unsaved);
+            assertEquals(WorldGenerator.hash(c), WorldGenerator.hash(reloaded));
+            for (int x = 0; x < Chunk.SIZE; x++) {
+                for (int z = 0; z < Chunk.SIZE; z++) {
+                    assertEquals(c.getBiome(x, z), reloaded.getBiome(x, z));
+                    for (int type = 0; type < 3; type++) assertEquals(c.getHeight(type, x, z), reloaded.getHeight(type, x, z));
+                }
+            }
+
+            assertFalse(reloaded.hasMesh());
+            mesh(reloaded, world);
+            assertTrue(reloaded.isMeshCurrent());
+            Chunk.BuiltMesh built = reloaded.takePendingMesh();
+            assertNotNull(built);
+            built.release();
+        } finally {
+            storage.close();
+            world.cleanup();
+        }
+    }
+
+    private static void mesh(Chunk c, World world) {
+        c.requestMesh();
+        c.takeMeshRequest();
+        c.computeMesh(world);
+    }
+}
@@ -0,0 +1,67 @@
+package me.xeroday.world;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkVertexTest {
+    @Test
+    void wordARoundTrips() {
+        Random r = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            int x = r.nextInt(17), y = r.nextInt(Chunk.MAX_Y - Chunk.MIN_Y + 1), z = r.nextInt(17);
+            int face = r.nextInt(ChunkVertex.FACE_CROSS + 1), corner = r.nextInt(4);
+            int jx = r.nextInt(16), jz = r.nextInt(16);
+            int a = ChunkVertex.packA(x, y, z, face, corner, jx, jz);
+            assertEquals(x, ChunkVertex.x(a));
+            assertEquals(y, ChunkVertex.y(a));
+            assertEquals(z, ChunkVertex.z(a));
+            assertEquals(face, ChunkVertex.face(a));
+            assertEquals(corner, ChunkVertex.corner(a));
+            assertEquals(jx, ChunkVertex.jitterX(a));
+            assertEquals(jz, ChunkVertex.jitterZ(a));
+        }
+    }
+
+    // The extremes of every field, a chunk's far corner included (x = z = 16, y = height)
+    @Test
+    void wordAFieldsDoNotOverlap() {
+        int a = ChunkVertex.packA(16, Chunk.MAX_Y - Chunk.MIN_Y, 16, 7, 3, 15, 15);
+        assertEquals(16, ChunkVertex.x(a));
+        assertEquals(Chunk.MAX_Y - Chunk.MIN_Y, ChunkVertex.y(a));
+        assertEquals(16, ChunkVertex.z(a));
+        assertEquals(7, ChunkVertex.face(a));
+        assertEquals(3, ChunkVertex.corner(a));
+        assertEquals(15, ChunkVertex.jitterX(a));
+        assertEquals(15, ChunkVertex.jitterZ(a));
+        assertEquals(0, ChunkVertex.x(ChunkVertex.packA(0, 511, 0, 7, 3, 15, 15)));
+    }
+
+    @Test
+    void wordBRoundTripsWithSlot() {
+        Random r = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            int layer = r.nextInt(256), palette = r.nextInt(256), slot = r.nextInt(1 << 16);
+            int b = ChunkVertex.withSlot(ChunkVertex.packB(layer, palette), slot);
+            assertEquals(layer, ChunkVertex.layer(b));
+            assertEquals(palette, ChunkVertex.palette(b));
+            assertEquals(slot, ChunkVertex.slot(b));
+            // a new slot replaces the old one
+            assertEquals(ChunkVertex.packB(layer, palette), ChunkVertex.withSlot(b, 0));
+        }
+    }
+
+    @Test
+    void paletteFitsTheShaderUniform() {
+        assertEquals(ChunkVertex.PALETTE_SIZE * 3, ChunkVertex.buildPalette().length);
+        for (Block b : Block.blocks) {
+            if (b == null) continue;
+            for (int face = 0; face <= ChunkVertex.FACE_CROSS; face++) {
+                int p = ChunkVertex.paletteIndex(b, face);
+                assertTrue(p >= 0 && p < ChunkVertex.PALETTE_SIZE, "block " + b.id + " face " + face);
+            }
+        }
+    }
+}
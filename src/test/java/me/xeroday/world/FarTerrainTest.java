@@ -0,0 +1,153 @@
+package me.xeroday.world;
+
+import me.xeroday.engine.Camera;
+import me.xeroday.utils.PerlinNoise;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FarTerrainTest {
+    // Every chunk of the far square outside the loaded square is under exactly one tile, loaded
+    // chunks under at most one, and no tile lies wholly inside the loaded square
+    @Test
+    void tilesCoverTheFarRingOnce() {
+        int[][] cases = {
+                { 0, 0, 16, 128 }, { -37, 1201, 16, 128 }, { 5, -9, 2, 128 }, { 100, 100, 8, 40 },
+                { -1, -1, 64, 128 }, { 333, -777, 32, 100 }, { 7, 7, 24, 25 },
+        };
+        List<Long> tiles = new ArrayList<>();
+        for (int[] c : cases) {
+            int pcx = c[0], pcz = c[1], renderDist = c[2], farDist = c[3];
+            String at = "player " + pcx + ", " + pcz + ", distance " + renderDist + " / " + farDist;
+            FarTerrain.selectTiles(pcx, pcz, renderDist, farDist, tiles);
+            assertEquals(tiles.size(), new HashSet<>(tiles).size(), at + ": a tile is listed twice");
+
+            int side = 2 * farDist + 1, minX = pcx - farDist, minZ = pcz - farDist;
+            int[] covered = new int[side * side];
+            int lastDistance = -1;
+            for (long key : tiles) {
+                int level = FarTile.level(key), chunks = FarTile.size(level) / Chunk.SIZE;
+                assertTrue(level >= FarTile.MIN_LEVEL && level <= FarTile.MAX_LEVEL);
+                int x0 = FarTile.tileX(key) * chunks, z0 = FarTile.tileZ(key) * chunks;
+                boolean outsideLoaded = false, insideFar = false;
+                for (int x = x0; x < x0 + chunks; x++) {
+                    for (int z = z0; z < z0 + chunks; z++) {
+                        boolean loaded = Math.abs(x - pcx) <= renderDist && Math.abs(z - pcz) <= renderDist;
+                        boolean far = Math.abs(x - pcx) <= farDist && Math.abs(z - pcz) <= farDist;
+                        outsideLoaded |= !loaded;
+                        insideFar |= far;
+                        if (far) covered[(x - minX) * side + (z - minZ)]++;
+                    }
+                }
+                assertTrue(outsideLoaded, at + ": tile inside the loaded square");
+                assertTrue(insideFar, at + ": tile outside the far square");
+                // nearest first, in blocks from the middle of the player's chunk to the tile
+                int centreX = pcx * Chunk.SIZE + Chunk.SIZE / 2, centreZ = pcz * Chunk.SIZE + Chunk.SIZE / 2;
+                int bx0 = x0 * Chunk.SIZE, bz0 = z0 * Chunk.SIZE, size = FarTile.size(level);
+                int distance = Math.max(Math.max(0, Math.max(bx0 - centreX, centreX - bx0 - size)), Math.max(0, Math.max(bz0 - centreZ, centreZ - bz0 - size)));
+                assertTrue(distance >= lastDistance, at + ": tiles not sorted by distance");
+                lastDistance = distance;
+            }
+            for (int x = minX; x < minX + side; x++) {
+                for (int z = minZ; z < minZ + side; z++) {
+                    int n = covered[(x - minX) * side + (z - minZ)];
+                    boolean loaded = Math.abs(x - pcx) <= renderDist && Math.abs(z - pcz) <= renderDist;
+                    if (loaded) assertTrue(n <= 1, at + ": chunk " + x + ", " + z + " under " + n + " tiles");
+                    else assertEquals(1, n, at + ": chunk " + x + ", " + z);
+                }
+            }
+        }
+    }
+
+    @Test
+    void nothingWithinTheRenderDistance() {
+        List<Long> tiles = new ArrayList<>(List.of(1L));
+        FarTerrain.selectTiles(3, 4, 32, 32, tiles);
+        assertTrue(tiles.isEmpty());
+        FarTerrain.selectTiles(3, 4, 32, 16, tiles);
+        assertTrue(tiles.isEmpty());
+    }
+
+    // With far terrain on, the chunks kept loaded past renderDist (out to unloadDist) are not drawn, so
+    // they can't z-fight with the far tiles drawn up to the edge of the load ring
+    @Test
+    void onlyTheLoadRingIsDrawnUnderFarTerrain() {
+        int farDistance = FarTerrain.FAR_DISTANCE;
+        World world = new World(1337, null, World.Pipeline.SCHEDULER);
+        try {
+            Camera camera = new Camera();
+            camera.x = 100; camera.z = -40; // chunk (6, -3)
+            world.update(camera);
+            int r = world.getRenderDistance();
+            assertTrue(world.getUnloadDistance() > r);
+
+            FarTerrain.FAR_DISTANCE = r + 64;
+            assertTrue(world.isDrawn(6 + r, -3 - r));
+            assertFalse(world.isDrawn(6 + r + 1, -3));
+            assertFalse(world.isDrawn(6, -3 - r - 1));
+
+            FarTerrain.FAR_DISTANCE = 0; // nothing past the ring to fight with
+            assertTrue(world.isDrawn(6 + world.getUnloadDistance(), -3));
+        } finally {
+            FarTerrain.FAR_DISTANCE = farDistance;
+            world.cleanup();
+        }
+    }
+
+    // Tiles get coarser with distance: the smallest ones touch the loaded square, the largest are
+    // only used far out
+    @Test
+    void levelsGrowWithDistance() {
+        List<Long> tiles = new ArrayList<>();
+        FarTerrain.selectTiles(0, 0, 16, 128, tiles);
+        Set<Integer> levels = new HashSet<>();
+        for (long key : tiles) levels.add(FarTile.level(key));
+        assertEquals(Set.of(1, 2, 3), levels);
+        assertEquals(FarTile.MIN_LEVEL, FarTile.level(tiles.get(0)));
+        assertEquals(FarTile.MAX_LEVEL, FarTile.level(tiles.get(tiles.size() - 1)));
+    }
+
+    // The heightfield follows the generated ground (ignoring trees and plants): the average error
+    // stays under a block, and few columns are off by more than a few blocks
+    @Test
+    void tileHeightsFollowGeneratedTerrain() {
+        PerlinNoise noise = new PerlinNoise(1337);
+        long samples = 0, error = 0, large = 0;
+        for (int[] t : new int[][]{ { 0, 0 }, { -3, 2 }, { 5, -4 } }) {
+            FarTile tile = FarTile.build(noise, FarTile.MIN_LEVEL, t[0], t[1]);
+            int chunks = FarTile.size(FarTile.MIN_LEVEL) / Chunk.SIZE, cx0 = tile.originX / Chunk.SIZE, cz0 = tile.originZ / Chunk.SIZE;
+            for (int cx = cx0; cx < cx0 + chunks; cx += 3) {
+                for (int cz = cz0; cz < cz0 + chunks; cz += 3) {
+                    Chunk c = Chunk.generate(cx, cz, noise);
+                    for (int x = 0; x < Chunk.SIZE; x += tile.step) {
+                        for (int z = 0; z < Chunk.SIZE; z += tile.step) {
+                            int i = (cx * Chunk.SIZE + x - tile.originX) / tile.step, j = (cz * Chunk.SIZE + z - tile.originZ) / tile.step;
+                            int a = tile.vertices[(j * FarTile.SAMPLES + i) * 2];
+                            int tileGround = ((a >>> 14) & 511) + Chunk.MIN_Y - 1;
+                            int diff = Math.abs(tileGround - ground(c, x, z));
+                            error += diff;
+                            if (diff > 4) large++;
+                            samples++;
+                        }
+                    }
+                }
+            }
+        }
+        assertTrue(error < samples, "mean height error " + error / (double) samples);
+        assertTrue(large < samples * 3 / 100, large + " of " + samples + " columns off by more than 4 blocks");
+    }
+
+    // Highest block that is not air or vegetation, water included
+    private static int ground(Chunk c, int x, int z) {
+        for (int y = c.getHeight(Chunk.HEIGHT_ANY, x, z); y >= Chunk.MIN_Y; y--) {
+            Block b = Block.get(c.getB(x, y, z));
+            if (b != Block.AIR && b != Block.LEAVES && b != Block.LOG && !b.isPlant) return y;
+        }
+        return Chunk.MIN_Y - 1;
+    }
+}
@@ -0,0 +1,82 @@
+package me.xeroday.world;
+
+import me.xeroday.utils.MeshBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GreedyMeshingTest {
+    private World world;
+
+    @BeforeEach
+    void setUp() {
+        world = new World(1337, null, World.Pipeline.SCHEDULER);
+        for (int x = -2; x <= 2; x++) {
+            for (int z = -2; z <= 2; z++) world.addChunk(Chunk.generate(x, z, world.getNoise()));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        Chunk.GREEDY_MESHING = true;
+        world.cleanup();
+    }
+
+    // Merged quads cover exactly the unit faces the per-face mesher emits, with the same texture and tint
+    @Test
+    void greedyCoversTheSameFaces() {
+        for (int x = -1; x <= 1; x++) {
+            for (int z = -1; z <= 1; z++) {
+                Chunk c = world.getChunk(x, z);
+                int[] quads = new int[2];
+                Map<Long, Integer> perFace = coverage(c, false, quads);
+                Map<Long, Integer> greedy = coverage(c, true, quads);
+                assertFalse(perFace.isEmpty());
+                assertEquals(perFace, greedy, "chunk " + x + ", " + z);
+                assertTrue(quads[1] < quads[0], "greedy should merge faces in chunk " + x + ", " + z);
+            }
+        }
+    }
+
+    // pass, face, unit face position -> vertex word B, every unit face covered once
+    private Map<Long, Integer> coverage(Chunk c, boolean greedy, int[] quads) {
+        Chunk.GREEDY_MESHING = greedy;
+        c.computeMesh(world);
+        Chunk.BuiltMesh mesh = c.takePendingMesh();
+        Map<Long, Integer> faces = new HashMap<>();
+        try {
+            for (int pass = 0; pass < mesh.passes.length; pass++) {
+                MeshBuilder b = mesh.passes[pass];
+                // 6 vertices per quad, sorting by section keeps both triangles together
+                for (int q = 0; q < b.size(); q += 12) {
+                    int face = ChunkVertex.face(b.get(q));
+                    if (face == ChunkVertex.FACE_CROSS) continue;
+                    int[] min = { Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE }, max = new int[3];
+                    for (int v = 0; v < 6; v++) {
+                        int a = b.get(q + v * 2);
+                        assertEquals(face, ChunkVertex.face(a));
+                        int[] p = { ChunkVertex.x(a), ChunkVertex.y(a), ChunkVertex.z(a) };
+                        for (int i = 0; i < 3; i++) { min[i] = Math.min(min[i], p[i]); max[i] = Math.max(max[i], p[i]); }
+                    }
+                    quads[greedy ? 1 : 0]++;
+                    for (int x = min[0]; x < Math.max(max[0], min[0] + 1); x++) {
+                        for (int y = min[1]; y < Math.max(max[1], min[1] + 1); y++) {
+                            for (int z = min[2]; z < Math.max(max[2], min[2] + 1); z++) {
+                                long key = ((long) pass << 40) | ((long) face << 32) | ((long) x << 20) | ((long) y << 8) | z;
+                                assertNull(faces.put(key, b.get(q + 1)), "face covered twice");
+                            }
+                        }
+                    }
+                }
+            }
+        } finally {
+            mesh.release();
+        }
+        return faces;
+    }
+}
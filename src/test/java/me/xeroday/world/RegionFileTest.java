@@ -0,0 +1,94 @@
+package me.xeroday.world;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegionFileTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void writesSurviveReopening() throws IOException {
+        Path path = dir.resolve("r.0.0.xrg");
+        Random r = new Random(42);
+        byte[][] stored = new byte[RegionFile.SIZE * RegionFile.SIZE][];
+        try (RegionFile region = new RegionFile(path)) {
+            assertNull(region.read(3, 4));
+            // rewrites that shrink, grow past their sectors and stay put, random bytes don't compress
+            for (int i = 0; i < 600; i++) {
+                int slot = r.nextInt(64);
+                stored[slot] = randomPayload(r, r.nextInt(4) == 0 ? 20_000 + r.nextInt(40_000) : r.nextInt(6000));
+                region.write(slot % RegionFile.SIZE, slot / RegionFile.SIZE, stored[slot]);
+            }
+            assertStored(region, stored);
+        }
+        try (RegionFile region = new RegionFile(path)) {
+            assertStored(region, stored);
+        }
+    }
+
+    // A rewrite never lands on the sectors the header still points to, so a crash before the
+    // header is switched leaves the old copy whole; freed sectors are reused, the file stays small
+    @Test
+    void rewritesLeaveTheOldCopyUntouched() throws IOException {
+        Path path = dir.resolve("r.0.0.xrg");
+        Random r = new Random(3);
+        try (RegionFile region = new RegionFile(path)) {
+            for (int i = 0; i < 300; i++) {
+                int slot = r.nextInt(8);
+                byte[] before = Files.readAllBytes(path);
+                int old = header(before, slot);
+                region.write(slot, 0, randomPayload(r, r.nextInt(3) == 0 ? 9000 : r.nextInt(3000)));
+                if (old == 0) continue;
+                byte[] after = Files.readAllBytes(path);
+                int start = (old >>> 8) * 4096, end = start + (old & 255) * 4096;
+                assertNotEquals(old, header(after, slot));
+                assertArrayEquals(Arrays.copyOfRange(before, start, end), Arrays.copyOfRange(after, start, end), "write " + i);
+            }
+            assertTrue(Files.size(path) <= 48 * 4096, Files.size(path) / 4096 + " sectors for 8 chunks of up to 3");
+        }
+    }
+
+    @Test
+    void localCoordinatesWrap() throws IOException {
+        try (RegionFile region = new RegionFile(dir.resolve("r.-1.0.xrg"))) {
+            region.write(-1, 33, new byte[]{ 1, 2, 3 });
+            assertTrue(region.contains(31, 1));
+            assertArrayEquals(new byte[]{ 1, 2, 3 }, region.read(31, 1));
+        }
+    }
+
+    @Test
+    void oversizedChunkIsRejected() throws IOException {
+        try (RegionFile region = new RegionFile(dir.resolve("r.0.0.xrg"))) {
+            region.write(0, 0, new byte[]{ 7 });
+            assertThrows(IOException.class, () -> region.write(0, 0, randomPayload(new Random(1), 2 << 20)));
+            assertArrayEquals(new byte[]{ 7 }, region.read(0, 0)); // the old copy is kept
+        }
+    }
+
+    private static byte[] randomPayload(Random r, int length) {
+        byte[] data = new byte[length];
+        r.nextBytes(data);
+        return data;
+    }
+
+    private static int header(byte[] file, int slot) { return ByteBuffer.wrap(file).getInt(slot * 4); }
+
+    private static void assertStored(RegionFile region, byte[][] stored) throws IOException {
+        for (int slot = 0; slot < stored.length; slot++) {
+            int x = slot % RegionFile.SIZE, z = slot / RegionFile.SIZE;
+            assertEquals(stored[slot] != null, region.contains(x, z));
+            if (stored[slot] != null) assertArrayEquals(stored[slot], region.read(x, z), "slot " + slot);
+        }
+    }
+}
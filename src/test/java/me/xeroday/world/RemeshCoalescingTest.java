@@ -0,0 +1,127 @@
+package me.xeroday.world;
+
+import me.xeroday.utils.MeshBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RemeshCoalescingTest {
+    private World world;
+
+    @BeforeEach
+    void setUp() {
+        world = new World(1337, null, World.Pipeline.SCHEDULER);
+        for (int x = -1; x <= 1; x++) {
+            for (int z = -1; z <= 1; z++) world.addChunk(Chunk.generate(x, z, world.getNoise()));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        world.cleanup();
+    }
+
+    @Test
+    void oneJobPerWaitingRequest() {
+        Chunk c = world.getChunk(0, 0);
+        assertFalse(c.hasRequestedMesh());
+        assertTrue(c.requestMesh());
+        assertFalse(c.requestMesh());
+        assertFalse(c.requestMesh());
+        c.takeMeshRequest();
+        assertTrue(c.requestMesh());
+        c.takeMeshRequest();
+        c.computeMesh(world);
+        assertTrue(c.hasMesh());
+        assertTrue(c.isMeshCurrent());
+    }
+
+    // A job that started before the latest request and finishes after it must not replace its mesh
+    @Test
+    void staleMeshIsDropped() throws InterruptedException {
+        CountDownLatch gate = new CountDownLatch(1);
+        World gated = new World(1337, null, World.Pipeline.SCHEDULER) {
+            @Override
+            public Chunk getChunk(int cx, int cz) {
+                if (Thread.currentThread().getName().equals("stale mesh")) {
+                    try { gate.await(); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+                }
+                return world.getChunk(cx, cz);
+            }
+        };
+        try {
+            Chunk c = world.getChunk(0, 0);
+            c.requestMesh();
+            c.takeMeshRequest();
+            Thread stale = new Thread(() -> c.computeMesh(gated), "stale mesh"); // takes its version, then waits
+            stale.start();
+            while (stale.getState() != Thread.State.WAITING) Thread.sleep(1);
+
+            c.requestMesh();
+            c.takeMeshRequest();
+            c.computeMesh(world);
+            assertTrue(c.isMeshCurrent());
+            gate.countDown();
+            stale.join();
+            assertTrue(c.isMeshCurrent());
+        } finally {
+            gated.cleanup();
+        }
+    }
+
+    // Requests from many threads while jobs run: fewer jobs than requests, and the mesh left
+    // published is built from the last request, never replaced by an older one
+    @Test
+    void concurrentRequestsCoalesce() throws InterruptedException {
+        Chunk c = world.getChunk(0, 0);
+        // platform workers free their mesh builder pools when they stop, like the scheduler's
+        ExecutorService jobs = Executors.newFixedThreadPool(4, r -> new Thread(() -> {
+            try { r.run(); } finally { MeshBuilder.freeThreadPool(); }
+        }));
+        ExecutorService requesters = Executors.newVirtualThreadPerTaskExecutor();
+        AtomicInteger started = new AtomicInteger(), failed = new AtomicInteger();
+        int threads = 8, requests = 200;
+        CountDownLatch go = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            requesters.execute(() -> {
+                try {
+                    go.await();
+                    for (int i = 0; i < requests; i++) {
+                        if (c.requestMesh()) {
+                            started.incrementAndGet();
+                            jobs.execute(() -> {
+                                try {
+                                    c.takeMeshRequest();
+                                    c.computeMesh(world);
+                                } catch (Throwable e) {
+                                    failed.incrementAndGet();
+                                }
+                            });
+                        }
+                        if (i % 20 == 0) Thread.sleep(1);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        go.countDown();
+        requesters.shutdown();
+        assertTrue(requesters.awaitTermination(60, TimeUnit.SECONDS));
+        jobs.shutdown();
+        assertTrue(jobs.awaitTermination(60, TimeUnit.SECONDS));
+
+        assertEquals(0, failed.get());
+        assertTrue(started.get() > 0 && started.get() < threads * requests, started.get() + " jobs");
+        assertTrue(c.isMeshCurrent());
+        assertTrue(c.requestMesh()); // nothing left queued
+    }
+}
@@ -0,0 +1,129 @@
+package me.xeroday.world;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.function.DoubleUnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Drives RenderDistanceController with synthetic frame times, generation and heap use instead of a
+ * window. Each scenario models the loaded area catching up with the requested distance at a fixed
+ * generation rate, and frame time and free heap as functions of the loaded chunk count.
+ */
+class RenderDistanceControllerTest {
+    private static final float TARGET_MS = 16.7f;
+    private static final DoubleUnaryOperator FAST_GPU = loaded -> 2 + 8 * loaded / 1089; // 10 ms at 16 chunks
+
+    private static class Scenario {
+        final String name;
+        int start = 16;
+        double genPerSecond = 400, seconds = 300;
+        DoubleUnaryOperator frameMillis = loaded -> 8; // loaded chunks -> ms
+        DoubleUnaryOperator heapFree = loaded -> 0.8;  // loaded chunks -> free fraction
+        double spikeAt = -1, spikeMillis; int spikeFrames;
+
+        // results
+        int finalDistance, minDistance = Integer.MAX_VALUE, maxDistance, changes;
+        double lastChangeAt, growBacklogPerRing; // worst backlog / distance when growing
+
+        Scenario(String name) { this.name = name; }
+
+        @Override
+        public String toString() {
+            return String.format("%s: start %d -> %d (range %d..%d), %d changes, last at %.0f s",
+                    name, start, finalDistance, minDistance, maxDistance, changes, lastChangeAt);
+        }
+    }
+
+    @Test
+    void fastGpuSettles() {
+        Scenario s = new Scenario("fast GPU");
+        s.frameMillis = FAST_GPU;
+        run(s);
+        assertTrue(s.finalDistance >= 18 && s.finalDistance <= 24, s + ", expected 18 to 24");
+        assertTrue(s.lastChangeAt < s.seconds - 60, s + ", expected stable for the last minute");
+    }
+
+    @Test
+    void slowGpuSettles() {
+        Scenario s = new Scenario("slow GPU");
+        s.frameMillis = loaded -> 6 + 20 * loaded / 1089; // 26 ms at 16 chunks
+        run(s);
+        assertTrue(s.finalDistance >= 10 && s.finalDistance <= 14, s + ", expected 10 to 14");
+        assertTrue(s.lastChangeAt < s.seconds - 60, s + ", expected stable for the last minute");
+    }
+
+    @Test
+    void lowHeapShrinks() {
+        Scenario s = new Scenario("low heap");
+        s.heapFree = loaded -> 1 - loaded / 1150; // 5% free at 16 chunks
+        run(s);
+        assertTrue(s.finalDistance < 16, s + ", expected to shrink");
+        assertTrue(s.heapFree.applyAsDouble(area(s.finalDistance)) >= 0.1, s + ", expected 10% of the heap free");
+    }
+
+    // Grows, but never with more than about a ring left to generate
+    @Test
+    void slowGenerationHoldsGrowthBack() {
+        Scenario s = new Scenario("slow generation");
+        s.frameMillis = loaded -> 2 + 4 * loaded / 1089;
+        s.genPerSecond = 30;
+        s.seconds = 600;
+        run(s);
+        assertTrue(s.finalDistance > 16, s + ", expected to grow");
+        assertTrue(s.growBacklogPerRing <= 8, s + ", grew with " + s.growBacklogPerRing + " chunks per ring left");
+    }
+
+    @Test
+    void idleGpuStopsAtMaximum() {
+        Scenario s = new Scenario("idle GPU");
+        s.frameMillis = loaded -> 1;
+        s.genPerSecond = 5000;
+        s.seconds = 600;
+        run(s);
+        assertEquals(World.MAX_RENDER_DISTANCE, s.finalDistance, s.toString());
+        assertEquals(World.MAX_RENDER_DISTANCE, s.maxDistance, s.toString());
+    }
+
+    // A 4.5 s stall may shrink the distance, but it comes back to where the fast GPU settles
+    @Test
+    void recoversFromStall() {
+        Scenario fast = new Scenario("fast GPU");
+        fast.frameMillis = FAST_GPU;
+        run(fast);
+        Scenario s = new Scenario("stall");
+        s.frameMillis = FAST_GPU;
+        s.spikeAt = 150; s.spikeMillis = 150; s.spikeFrames = 30;
+        run(s);
+        assertEquals(fast.finalDistance, s.finalDistance, s.toString());
+    }
+
+    private static void run(Scenario s) {
+        RenderDistanceController controller = new RenderDistanceController(s.start, World.MIN_RENDER_DISTANCE, World.MAX_RENDER_DISTANCE, TARGET_MS);
+        int distance = controller.getDistance();
+        double loaded = area(distance), time = 0;
+        int spikeLeft = s.spikeFrames;
+        while (time < s.seconds) {
+            double target = area(distance);
+            double millis = s.frameMillis.applyAsDouble(loaded);
+            if (s.spikeAt >= 0 && time >= s.spikeAt && spikeLeft > 0) { millis = s.spikeMillis; spikeLeft--; }
+            time += millis / 1000;
+            loaded = loaded > target ? target : Math.min(target, loaded + s.genPerSecond * millis / 1000);
+
+            int backlog = (int) (target - loaded);
+            int next = controller.update((long) (time * 1e9), (float) millis, backlog, (float) s.heapFree.applyAsDouble(loaded));
+            if (next != distance) {
+                if (next > distance) s.growBacklogPerRing = Math.max(s.growBacklogPerRing, (double) backlog / distance);
+                distance = next;
+                s.changes++;
+                s.lastChangeAt = time;
+            }
+            s.minDistance = Math.min(s.minDistance, distance);
+            s.maxDistance = Math.max(s.maxDistance, distance);
+        }
+        s.finalDistance = distance;
+    }
+
+    private static double area(int distance) { return (2.0 * distance + 1) * (2 * distance + 1); }
+}
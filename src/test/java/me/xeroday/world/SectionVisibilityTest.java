@@ -0,0 +1,162 @@
+package me.xeroday.world;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SectionVisibilityTest {
+    private static final int UP = 0, DOWN = 1, PZ = 2, NZ = 3, PX = 4, NX = 5;
+    private static final int OFFSET = 3 * 4096; // a section somewhere inside a longer array
+
+    @Test
+    void openAndSolidSections() {
+        assertEquals(SectionVisibility.ALL, compute(section(Block.AIR.id)));
+        assertEquals(SectionVisibility.ALL, compute(section(Block.WATER.id))); // not opaque
+        assertEquals(SectionVisibility.NONE, compute(section(Block.STONE.id)));
+    }
+
+    // A solid floor at y = 8 separates the top face from the bottom, the sides still see each other
+    // above it and below it
+    @Test
+    void wallSplitsTheSection() {
+        byte[] b = section(Block.AIR.id);
+        for (int z = 0; z < 16; z++) for (int x = 0; x < 16; x++) set(b, x, 8, z, Block.STONE.id);
+        long v = compute(b);
+        assertFalse(SectionVisibility.connected(v, UP, DOWN));
+        assertTrue(SectionVisibility.connected(v, UP, PX));
+        assertTrue(SectionVisibility.connected(v, DOWN, NZ));
+        assertTrue(SectionVisibility.connected(v, PX, NX));
+        assertTrue(SectionVisibility.connected(v, PZ, NZ));
+        assertSymmetric(v);
+
+        set(b, 5, 8, 7, Block.AIR.id); // one hole is enough
+        assertEquals(SectionVisibility.ALL, compute(b));
+    }
+
+    // A straight tunnel through stone links only its two ends
+    @Test
+    void tunnelLinksOppositeFaces() {
+        byte[] b = section(Block.STONE.id);
+        for (int x = 0; x < 16; x++) set(b, x, 4, 9, Block.AIR.id);
+        long v = compute(b);
+        assertEquals(bits(PX, NX), v);
+
+        b = section(Block.STONE.id);
+        for (int y = 0; y < 16; y++) set(b, 2, y, 2, Block.AIR.id);
+        assertEquals(bits(UP, DOWN), compute(b));
+    }
+
+    // An L from the -x face that turns up to the top face, plus a pocket touching no face
+    @Test
+    void bentPathAndClosedPocket() {
+        byte[] b = section(Block.STONE.id);
+        for (int x = 0; x <= 7; x++) set(b, x, 3, 5, Block.AIR.id);
+        for (int y = 3; y < 16; y++) set(b, 7, y, 5, Block.AIR.id);
+        set(b, 12, 10, 12, Block.AIR.id);
+        long v = compute(b);
+        assertEquals(bits(NX, UP), v);
+        assertFalse(SectionVisibility.connected(v, NX, PX));
+        assertFalse(SectionVisibility.connected(v, UP, DOWN));
+    }
+
+    // Separate regions each link only their own faces, a diagonal touch is not an opening
+    @Test
+    void separateRegionsDoNotMix() {
+        byte[] b = section(Block.STONE.id);
+        for (int z = 0; z < 16; z++) set(b, 0, 0, z, Block.AIR.id); // -x, down, +z, -z
+        for (int x = 1; x < 16; x++) set(b, x, 15, 1, Block.AIR.id); // up, +x
+        long v = compute(b);
+        assertEquals(bits(NX, DOWN, PZ, NZ) | bits(UP, PX), v);
+
+        b = section(Block.STONE.id);
+        set(b, 0, 0, 0, Block.AIR.id);
+        set(b, 1, 1, 0, Block.AIR.id);
+        for (int x = 1; x < 16; x++) set(b, x, 1, 1, Block.AIR.id);
+        assertFalse(SectionVisibility.connected(compute(b), DOWN, PX));
+    }
+
+    // Random caves: the result is symmetric, a face sees itself whenever it sees anything, and it
+    // matches a plain pairwise search
+    @Test
+    void randomSectionsMatchPairwiseSearch() {
+        Random r = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            byte[] b = section(Block.STONE.id);
+            double open = 0.2 + r.nextDouble() * 0.4;
+            for (int i = 0; i < 4096; i++) if (r.nextDouble() < open) b[OFFSET + i] = Block.AIR.id;
+            long v = compute(b);
+            assertSymmetric(v);
+            for (int from = 0; from < 6; from++) {
+                for (int to = 0; to < 6; to++) {
+                    assertEquals(reachable(b, from, to), SectionVisibility.connected(v, from, to), "round " + round + ", " + from + " -> " + to);
+                }
+            }
+        }
+    }
+
+    private static long compute(byte[] b) { return SectionVisibility.compute(b, OFFSET); }
+
+    private static byte[] section(byte fill) {
+        // the sections around it hold the opposite, so anything read past the section shows up
+        byte[] b = new byte[OFFSET + 2 * 4096];
+        Arrays.fill(b, fill == Block.AIR.id ? Block.STONE.id : Block.AIR.id);
+        Arrays.fill(b, OFFSET, OFFSET + 4096, fill);
+        return b;
+    }
+
+    private static void set(byte[] b, int x, int y, int z, byte id) { b[OFFSET + ((y << 8) | (z << 4) | x)] = id; }
+
+    // Every face of the group sees every face of it
+    private static long bits(int... faces) {
+        long v = 0;
+        for (int from : faces) for (int to : faces) v |= 1L << (from * 6 + to);
+        return v;
+    }
+
+    private static void assertSymmetric(long v) {
+        for (int from = 0; from < 6; from++) {
+            for (int to = 0; to < 6; to++) assertEquals(SectionVisibility.connected(v, from, to), SectionVisibility.connected(v, to, from));
+            if (v != 0 && (v >>> from * 6 & 63) != 0) assertTrue(SectionVisibility.connected(v, from, from));
+        }
+    }
+
+    // Is there an open path from any open block on face 'from' to one on face 'to'? A separate flood
+    // per start face, no shared visited array
+    private static boolean reachable(byte[] b, int from, int to) {
+        boolean[] seen = new boolean[4096];
+        int[] stack = new int[4096];
+        int top = 0;
+        for (int i = 0; i < 4096; i++) {
+            if (onFace(i, from) && open(b, i)) { seen[i] = true; stack[top++] = i; }
+        }
+        while (top > 0) {
+            int i = stack[--top];
+            if (onFace(i, to)) return true;
+            int x = i & 15, z = (i >> 4) & 15, y = i >> 8;
+            int[][] next = { { x, y + 1, z }, { x, y - 1, z }, { x, y, z + 1 }, { x, y, z - 1 }, { x + 1, y, z }, { x - 1, y, z } };
+            for (int[] n : next) {
+                if (n[0] < 0 || n[0] > 15 || n[1] < 0 || n[1] > 15 || n[2] < 0 || n[2] > 15) continue;
+                int j = (n[1] << 8) | (n[2] << 4) | n[0];
+                if (!seen[j] && open(b, j)) { seen[j] = true; stack[top++] = j; }
+            }
+        }
+        return false;
+    }
+
+    private static boolean open(byte[] b, int i) { return !Block.get(b[OFFSET + i]).opaque; }
+
+    private static boolean onFace(int i, int face) {
+        int x = i & 15, z = (i >> 4) & 15, y = i >> 8;
+        return switch (face) {
+            case UP -> y == 15;
+            case DOWN -> y == 0;
+            case PZ -> z == 15;
+            case NZ -> z == 0;
+            case PX -> x == 15;
+            default -> x == 0;
+        };
+    }
+}
@@ -0,0 +1,20 @@
+package me.xeroday.world;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorldGeneratorTest {
+    // Seed 1337, 16x16 chunks from 0, 0. Update only when generation is meant to change.
+    private static final long GOLDEN_CHECKSUM = -7384484234524910365L;
+
+    @Test
+    void generationMatchesGoldenChecksum() throws Exception {
+        assertEquals(GOLDEN_CHECKSUM, WorldGenerator.checksum(1337, 0, 0, 16));
+    }
+
+    @Test
+    void checksumDependsOnSeed() throws Exception {
+        assertNotEquals(WorldGenerator.checksum(1337, 0, 0, 2), WorldGenerator.checksum(1338, 0, 0, 2));
+    }
+}